@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import problems.pap.PAP_Inverse;
+import problems.pap.solvers.TS_PAP;
+import solutions.Solution;
+
+/**
+ * TS_PAP exposing the search state, so the benchmarks can start from the
+ * solution of the constructive heuristic and time single steps of the search.
+ */
+public class BenchTS extends TS_PAP {
+
+    public BenchTS(String filename) throws IOException {
+        this(filename, Integer.MAX_VALUE);
+    }
+
+    public BenchTS(String filename, int iterations) throws IOException {
+        super(20, iterations, filename, null, filename);
+    }
+
+    /**
+     * Runs the constructive heuristic and sets the search state as
+     * {@link #solve(double)} does before the first neighborhood move.
+     */
+    public void prepare() {
+        incumbentSol = createEmptySol();
+        constructiveHeuristic();
+        incumbentSol = currentSol.copy();
+        TL = makeTL();
+        currIteration = 0;
+    }
+
+    /**
+     * Performs the next neighborhood move of the search.
+     */
+    public void step() {
+        neighborhoodMove();
+        if (incumbentSol.cost > currentSol.cost)
+            incumbentSol = currentSol.copy();
+        currIteration++;
+    }
+
+    public PAP_Inverse getPAP() {
+        return (PAP_Inverse) ObjFunction;
+    }
+
+    public Solution<int[]> getCurrentSol() {
+        return currentSol;
+    }
+
+    public int getIteration() {
+        return currIteration;
+    }
+
+    public ArrayList<int[]> getCL() {
+        return CL;
+    }
+
+    public void setCL(ArrayList<int[]> CL) {
+        this.CL = CL;
+    }
+
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import problems.pap.PAP_Inverse;
+import solutions.Solution;
+
+/**
+ * Benchmarks of the PAP evaluator over the solution built by the constructive
+ * heuristic: full evaluation, the delta evaluations and the feasibility check
+ * of an element. The delta evaluations cycle through the candidates and the
+ * solution elements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    @Param({ "P50D50S1", "P50D50S3", "P50D50S5", "P70D70S1", "P70D70S3", "P70D70S5", "P70D100S6", "P70D100S8",
+            "P70D100S10", "P100D150S10", "P100D150S15", "P100D150S20" })
+    public String instance;
+
+    private PAP_Inverse pap;
+    private Solution<int[]> sol;
+    private int[][] cands, elems;
+    private int i, j;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchTS ts = new BenchTS("instances/" + instance + ".pap");
+        ts.prepare();
+        ts.updateCL();
+        pap = ts.getPAP();
+        sol = ts.getCurrentSol();
+        cands = ts.getCL().toArray(new int[0][]);
+        elems = sol.toArray(new int[0][]);
+        pap.evaluate(sol);
+    }
+
+    private int[] nextCand() {
+        if (++i == cands.length)
+            i = 0;
+        return cands[i];
+    }
+
+    private int[] nextElem() {
+        if (++j == elems.length)
+            j = 0;
+        return elems[j];
+    }
+
+    @Benchmark
+    public long evaluate() {
+        return pap.evaluateAsLong(sol);
+    }
+
+    @Benchmark
+    public long evaluateInsertionCost() {
+        return pap.evaluateInsertionCostAsLong(nextCand(), sol);
+    }
+
+    @Benchmark
+    public long evaluateRemovalCost() {
+        return pap.evaluateRemovalCostAsLong(nextElem(), sol);
+    }
+
+    @Benchmark
+    public long evaluateExchangeCost() {
+        return pap.evaluateExchangeCostAsLong(nextCand(), nextElem(), sol);
+    }
+
+    @Benchmark
+    public Boolean isElemFeasible() {
+        return pap.isElemFeasible(nextCand());
+    }
+
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import metaheuristics.tabusearch.AbstractTS;
+import problems.pap.PAP;
+import problems.pap.PAPGenerator;
+import solutions.Solution;
+
+/**
+ * Runs TS_PAP on a ladder of generated instances of growing size and reports,
+ * for each one, the time of the constructive phase, the iterations per second
+ * of the search, the heap used by the search and the time until the first
+ * feasible incumbent. The arguments are the time limit per instance in seconds
+ * and the largest scale factor, where scale k has P = 100k, D = 150k and
+ * S = 10k, as P100D150S10.
+ */
+public class ScalingBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        double maxTime = (args.length > 0) ? Double.parseDouble(args[0]) : 60.0;
+        int maxScale = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+        AbstractTS.verbose = false;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.out.println("instance;constructiveTime;iterations;itPerSec;heapMB;firstFeasibleTime;bestCost");
+
+        for (int k = 1; k <= maxScale; k = (k < 2) ? 2 : k + 2) {
+
+            int P = 100 * k, D = 150 * k, S = 10 * k;
+            String name = "P" + P + "D" + D + "S" + S;
+            File file = File.createTempFile(name, ".pap");
+            file.deleteOnExit();
+            PAPGenerator.generate(file.getPath(), P, D, 20, S, 3, PAPGenerator.aDensity, PAPGenerator.rDensity, k);
+
+            System.gc();
+            long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+            double[] constructive = new double[] { 0 };
+            BenchTS ts = new BenchTS(file.getPath(), Integer.MAX_VALUE) {
+                @Override
+                public Solution<int[]> constructiveHeuristic() {
+                    long start = System.nanoTime();
+                    Solution<int[]> sol = super.constructiveHeuristic();
+                    constructive[0] = (System.nanoTime() - start) / 1e9;
+                    return sol;
+                }
+            };
+
+            // the incumbents are only recorded on the search thread, and checked
+            // with another evaluator once the search is over
+            List<Solution<int[]>> incumbents = new ArrayList<Solution<int[]>>();
+            List<Double> times = new ArrayList<Double>();
+            ts.addIncumbentListener((sol, iteration, time) -> {
+                incumbents.add(sol);
+                times.add(time);
+            });
+
+            long start = System.nanoTime();
+            double bestCost = ts.solve(maxTime).cost;
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            long heap = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+
+            double firstFeasible = Double.NaN;
+            PAP pap = new PAP(file.getPath());
+            for (int i = 0; i < incumbents.size() && Double.isNaN(firstFeasible); i++)
+                if (pap.isSolFeasible(incumbents.get(i)))
+                    firstFeasible = times.get(i);
+
+            double searchTime = elapsed - constructive[0];
+            System.out.println(String.format("%s;%.3f;%d;%.2f;%.1f;%.3f;%s", name, constructive[0],
+                    ts.getIteration(), ts.getIteration() / searchTime, heap / 1048576.0, firstFeasible,
+                    bestCost));
+
+        }
+
+    }
+
+}
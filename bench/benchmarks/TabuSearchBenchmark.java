@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the TS_PAP steps: building the candidate list from scratch and
+ * performing one neighborhood move. The search is restarted from the
+ * constructive solution at each measurement iteration, so the moves measured
+ * are the first ones of the search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TabuSearchBenchmark {
+
+    @Param({ "P50D50S1", "P50D50S3", "P50D50S5", "P70D70S1", "P70D70S3", "P70D70S5", "P70D100S6", "P70D100S8",
+            "P70D100S10", "P100D150S10", "P100D150S15", "P100D150S20" })
+    public String instance;
+
+    private BenchTS ts;
+
+    @Setup
+    public void setup() throws IOException {
+        ts = new BenchTS("instances/" + instance + ".pap");
+    }
+
+    @Setup(Level.Iteration)
+    public void restart() {
+        ts.prepare();
+    }
+
+    @Benchmark
+    public int buildCL() {
+        ts.setCL(ts.makeCL());
+        ts.updateCL();
+        return ts.getCL().size();
+    }
+
+    @Benchmark
+    public double neighborhoodMove() {
+        ts.step();
+        return ts.getCurrentSol().cost;
+    }
+
+}
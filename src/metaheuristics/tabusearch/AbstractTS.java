@@ -1,13 +1,18 @@
 package metaheuristics.tabusearch;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import javax.management.JMException;
 
 import problems.Evaluator;
+import problems.LongEvaluator;
 import solutions.Solution;
 
 /**
@@ -24,10 +29,16 @@ public abstract class AbstractTS<E> {
 	 */
 	public static boolean verbose = true;
 
+	/**
+	 * flag that indicates whether the metrics of each search should be
+	 * registered as an MBean while it runs
+	 */
+	public static boolean jmx = false;
+
 	/**
 	 * a random number generator
 	 */
-	private Random rng;
+	protected Random rng;
 
 	/**
 	 * path to store the history file.
@@ -44,20 +55,26 @@ public abstract class AbstractTS<E> {
 	 */
 	protected Evaluator<E> ObjFunction;
 
+	/**
+	 * the objective function, if it gives primitive costs, or null
+	 */
+	private final LongEvaluator<E> longObjFunction;
+
 	/**
 	 * the incumbent solution cost
 	 */
-	protected Double incumbentCost;
+	protected double incumbentCost;
 
 	/**
 	 * the current solution cost
 	 */
-	protected Double currentCost;
+	protected double currentCost;
 
 	/**
-	 * the incumbent solution
+	 * the incumbent solution, replaced by a copy whenever it improves so it can
+	 * be read from other threads
 	 */
-	protected Solution<E> incumbentSol;
+	protected volatile Solution<E> incumbentSol;
 
 	/**
 	 * the current solution
@@ -67,17 +84,17 @@ public abstract class AbstractTS<E> {
 	/**
 	 * the number of iterations the TS main loop executes.
 	 */
-	protected Integer iterations;
+	protected int iterations;
 
 	/**
 	 * current iteration.
 	 */
-	protected Integer currIteration;
+	protected int currIteration;
 
 	/**
 	 * the tabu tenure.
 	 */
-	protected Integer tenure;
+	protected int tenure;
 
 	/**
 	 * the Candidate List of elements to enter the solution.
@@ -94,6 +111,64 @@ public abstract class AbstractTS<E> {
 	 */
 	protected ArrayDeque<E> TL;
 
+	/**
+	 * the listeners notified when the incumbent solution improves.
+	 */
+	private final List<IncumbentListener<E>> listeners = new CopyOnWriteArrayList<IncumbentListener<E>>();
+
+	/**
+	 * the stream of improvements of the current or next search, or null if
+	 * nobody asked for it.
+	 */
+	private volatile ImprovementPublisher<E> publisher;
+
+	/**
+	 * the file where checkpoints are written, or null, and the time between
+	 * them, in seconds.
+	 */
+	private String checkpointFile;
+	private double checkpointPeriod;
+
+	/**
+	 * flag set by {@link #stop()} to end the search at the next iteration.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * the criteria which stop the search when any of them is met.
+	 */
+	private final List<StoppingCriterion<E>> criteria = new CopyOnWriteArrayList<StoppingCriterion<E>>();
+
+	/**
+	 * flag set once the search is stopped by its time limit or a criterion.
+	 */
+	private volatile boolean halted;
+
+	/**
+	 * flag set while a search runs, outside of which the time limit and the
+	 * criteria do not apply.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * start of the current search, in nanoseconds, and its time limit, in
+	 * seconds.
+	 */
+	private volatile long startTime;
+	private volatile double maxTime;
+
+	/**
+	 * iteration at which the incumbent solution last improved, and the time
+	 * since the search started, in seconds.
+	 */
+	private volatile int lastImprovement;
+	private volatile double lastImprovementTime;
+
+	/**
+	 * live measures of the search.
+	 */
+	protected final SearchMetrics metrics = new SearchMetrics(this);
+
 	/**
 	 * Creates the Candidate List, which is an ArrayList of candidate elements that
 	 * can enter a solution.
@@ -156,9 +231,10 @@ public abstract class AbstractTS<E> {
 	 * @param resultsFileName The file where the results will be stored.
 	 * @param instName        The instance name.
 	 */
-	public AbstractTS(Evaluator<E> objFunction, Integer tenure, Integer iterations, String resultsFileName,
+	public AbstractTS(Evaluator<E> objFunction, int tenure, int iterations, String resultsFileName,
 			String instName) {
 		this.ObjFunction = objFunction;
+		this.longObjFunction = (objFunction instanceof LongEvaluator) ? (LongEvaluator<E>) objFunction : null;
 		this.tenure = tenure;
 		this.iterations = iterations;
 		this.resultsFileName = resultsFileName;
@@ -166,6 +242,170 @@ public abstract class AbstractTS<E> {
 		this.rng = new Random(0);
 	}
 
+	/**
+	 * Sets the seed of the random number generator, which is 0 by default.
+	 * 
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed) {
+		this.rng = new Random(seed);
+	}
+
+	/**
+	 * Registers a listener to be notified whenever the incumbent solution
+	 * improves, including when it is first set by the constructive phase or the
+	 * initial solution.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener<E> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Gives the stream of improvements of the incumbent solution of the current
+	 * search or, between searches, of the next one, which is completed when that
+	 * search ends. Events are dropped for subscribers that do not keep up, so the
+	 * search never waits for them.
+	 * 
+	 * @return The publisher of improvements.
+	 */
+	public Flow.Publisher<Improvement<E>> improvements() {
+		return improvements(ImprovementPublisher.capacity, true);
+	}
+
+	/**
+	 * Gives the stream of improvements as {@link #improvements()}. The options
+	 * only apply to the first call for a search, which creates the stream.
+	 * 
+	 * @param bufferSize The maximum number of events buffered per subscriber.
+	 * @param drop       true to drop events for subscribers whose buffer is full,
+	 *                   false to block the search until they catch up.
+	 * @return The publisher of improvements.
+	 */
+	public synchronized Flow.Publisher<Improvement<E>> improvements(int bufferSize, boolean drop) {
+		if (publisher == null)
+			publisher = new ImprovementPublisher<E>(bufferSize, drop);
+		return publisher;
+	}
+
+	/**
+	 * Asks the search to stop at the end of the current iteration. It can be
+	 * called from any thread, and the incumbent solution is still returned by
+	 * {@link #solve(double)}. It has no effect on later searches.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Adds a criterion which stops the search when met, besides the iteration
+	 * count and the time limit.
+	 * 
+	 * @param criterion The stopping criterion.
+	 */
+	public void addStoppingCriterion(StoppingCriterion<E> criterion) {
+		criteria.add(criterion);
+	}
+
+	/**
+	 * Checks if the search must stop, because it was stopped, exceeded its time
+	 * limit or met a stopping criterion. Once true, it stays true until the next
+	 * call to {@link #solve(double)}. Subclasses may call it inside long
+	 * neighborhood scans, from any thread, to stop them early without applying
+	 * their move, so an iteration in which it became true is taken as not done
+	 * by the checkpoints. It is always false
+	 * outside a search, so the phases of the search can be run on their own.
+	 * 
+	 * @return true if the search must stop.
+	 */
+	protected boolean shouldStop() {
+
+		if (!running)
+			return false;
+
+		if (halted || stopped || getElapsedTime() > maxTime) {
+			halted = true;
+			return true;
+		}
+
+		for (StoppingCriterion<E> criterion : criteria) {
+			if (criterion.isMet(this)) {
+				halted = true;
+				return true;
+			}
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Gives the best solution found so far. It can be called from any thread
+	 * while the search runs, and the solution is never modified afterwards.
+	 * 
+	 * @return The incumbent solution, or null before the search starts.
+	 */
+	public Solution<E> getIncumbent() {
+		return incumbentSol;
+	}
+
+	/**
+	 * Gives the current iteration of the search.
+	 * 
+	 * @return The current iteration.
+	 */
+	public int getIteration() {
+		return currIteration;
+	}
+
+	/**
+	 * Gives the iteration at which the incumbent solution last improved.
+	 * 
+	 * @return The iteration of the last improvement.
+	 */
+	public int getLastImprovement() {
+		return lastImprovement;
+	}
+
+	/**
+	 * Gives the time at which the incumbent solution last improved.
+	 * 
+	 * @return The time since the search started, in seconds.
+	 */
+	public double getLastImprovementTime() {
+		return lastImprovementTime;
+	}
+
+	/**
+	 * Gives the cost of the current solution. It may be read from other threads,
+	 * for monitoring, while the search changes it.
+	 * 
+	 * @return The current cost, or NaN before the search starts.
+	 */
+	public double getCurrentCost() {
+		Solution<E> sol = currentSol;
+		return (sol == null) ? Double.NaN : sol.cost;
+	}
+
+	/**
+	 * Gives the live measures of the search, which can be read from any thread.
+	 * 
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Gives the time elapsed since the search started.
+	 * 
+	 * @return The elapsed time, in seconds.
+	 */
+	public double getElapsedTime() {
+		return (System.nanoTime() - startTime) / 1e9;
+	}
+
 	/**
 	 * The TS constructive heuristic, which is responsible for building a feasible
 	 * solution by selecting in a greedy fashion, candidate elements to enter the
@@ -181,9 +421,9 @@ public abstract class AbstractTS<E> {
 		currentCost = Double.POSITIVE_INFINITY;
 
 		/* Main loop, which repeats until the stopping criteria is reached. */
-		while (!constructiveStopCriteria()) {
+		while (!constructiveStopCriteria() && !shouldStop()) {
 
-			Double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
+			double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
 			currentCost = currentSol.cost;
 			updateCL();
 
@@ -196,7 +436,7 @@ public abstract class AbstractTS<E> {
 			 * lowest cost variation achieved by the candidates.
 			 */
 			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, currentSol);
+				double deltaCost = evaluateInsertionCost(c);
 				if (deltaCost < minCost)
 					minCost = deltaCost;
 				if (deltaCost > maxCost)
@@ -207,7 +447,7 @@ public abstract class AbstractTS<E> {
 			 * Among all candidates, insert into the RCL those with the highest performance.
 			 */
 			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, currentSol);
+				double deltaCost = evaluateInsertionCost(c);
 				if (deltaCost <= minCost) {
 					RCL.add(c);
 				}
@@ -226,107 +466,311 @@ public abstract class AbstractTS<E> {
 		return currentSol;
 	}
 
+	/**
+	 * Evaluates the insertion of a candidate into the current solution, without
+	 * boxing the cost if the objective function gives primitive costs.
+	 * 
+	 * @param elem The candidate.
+	 * @return The cost variation of the insertion.
+	 */
+	protected double evaluateInsertionCost(E elem) {
+		if (longObjFunction != null)
+			return longObjFunction.evaluateInsertionCostAsLong(elem, currentSol);
+		return ObjFunction.evaluateInsertionCost(elem, currentSol);
+	}
+
 	/**
 	 * The TS mainframe. It consists of a constructive heuristic followed by a loop,
 	 * in which each iteration a neighborhood move is performed on the current
-	 * solution. The best solution is returned as result.
+	 * solution. The best solution is returned as result. The time limit and the
+	 * stopping criteria are checked between iterations, and also inside the
+	 * constructive phase and the neighborhood scans that support it, so the
+	 * search returns the best solution found so far shortly after any of them is
+	 * met.
 	 * 
 	 * @param maxTime Time limit.
 	 * @return The best feasible solution obtained throughout all iterations.
 	 */
 	public Solution<E> solve(double maxTime) {
+		start(maxTime);
+		return search(false, null);
+	}
 
-		long startTime = System.currentTimeMillis(), endTime;
-		double totalTime;
-
-		// constructive phase
-		incumbentSol = createEmptySol();
-		constructiveHeuristic();
-		TL = makeTL();
-
-		for (currIteration = 0; currIteration < iterations; currIteration++) {
+	/**
+	 * Runs the TS from a given solution, such as the one of a previous run on a
+	 * slightly different instance, instead of the one built by the constructive
+	 * heuristic. The solution is not modified.
+	 * 
+	 * @param initial The initial solution, which subclasses may repair.
+	 * @param maxTime Time limit.
+	 * @return The best feasible solution obtained throughout all iterations.
+	 */
+	public Solution<E> solve(Solution<E> initial, double maxTime) {
+		start(maxTime);
+		return search(false, initial);
+	}
 
-			// local search
-			neighborhoodMove();
+	/**
+	 * Resumes a search from a checkpoint written by it, or by another search with
+	 * the same problem and parameters, and continues the same trajectory up to
+	 * the iteration count. The time limit includes the time the search had run
+	 * before the checkpoint. The measures of the search start from zero.
+	 * 
+	 * @param filename The checkpoint file.
+	 * @param maxTime  Time limit.
+	 * @return The best feasible solution obtained throughout all iterations.
+	 * @throws IOException                   If the checkpoint cannot be read or
+	 *                                       is not of this search.
+	 * @throws UnsupportedOperationException If the search is not
+	 *                                       {@link Checkpointable}.
+	 */
+	public Solution<E> resume(String filename, double maxTime) throws IOException {
+
+		Checkpointable search = checkpointable();
+		start(maxTime);
+
+		try (DataInputStream in = Checkpoint.open(filename)) {
+			currIteration = in.readInt();
+			double elapsed = in.readDouble();
+			lastImprovement = in.readInt();
+			lastImprovementTime = in.readDouble();
+			rng = Checkpoint.readRandom(in);
+			search.restoreState(in);
+			startTime -= (long) (elapsed * 1e9);
+		} catch (IOException | RuntimeException e) {
+			running = false;
+			throw e;
+		}
 
-			if (incumbentSol.cost > currentSol.cost) {
-				// found a better solution
-				incumbentSol = new Solution<E>(currentSol);
-				if (verbose)
-					printSolutionMeasure((System.currentTimeMillis() - startTime) / (double) 1000);
-			}
+		return search(true, null);
 
-			endTime = System.currentTimeMillis();
-			totalTime = (endTime - startTime) / (double) 1000;
+	}
 
-			// if it exceeded the time limit, break the loop
-			if (totalTime > maxTime)
-				break;
+	/**
+	 * Sets a file where a checkpoint of the search is written periodically,
+	 * between iterations, from which the search can be resumed by
+	 * {@link #resume(String, double)}. The state is copied by the search thread
+	 * and written by another one.
+	 * 
+	 * @param filename The checkpoint file, or null to disable checkpoints.
+	 * @param period   The time between checkpoints, in seconds.
+	 * @throws UnsupportedOperationException If the search is not
+	 *                                       {@link Checkpointable}.
+	 */
+	public void setCheckpoint(String filename, double period) {
+		if (filename != null)
+			checkpointable();
+		this.checkpointFile = filename;
+		this.checkpointPeriod = period;
+	}
 
-		}
+	/**
+	 * Gives this search as a {@link Checkpointable}, so a search without
+	 * checkpoints fails before it starts.
+	 */
+	private Checkpointable checkpointable() {
+		if (!(this instanceof Checkpointable))
+			throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support checkpoints");
+		return (Checkpointable) this;
+	}
 
-		return incumbentSol;
+	/**
+	 * Resets the state of a search which starts now.
+	 */
+	private void start(double maxTime) {
+		this.startTime = System.nanoTime();
+		this.maxTime = maxTime;
+		this.halted = false;
+		this.stopped = false;
+		this.running = true;
+		this.lastImprovement = 0;
+		this.lastImprovementTime = 0;
+		this.currIteration = 0;
+		metrics.reset();
 	}
 
 	/**
-	 * A standard stopping criteria for the constructive heuristic is to repeat
-	 * until the incumbent solution improves by inserting a new candidate element.
+	 * Makes a copy of a given solution the current one, creating CL and RCL as
+	 * the constructive heuristic does.
 	 * 
-	 * @return true if the criteria is met.
+	 * @param sol The initial solution.
 	 */
-	public Boolean constructiveStopCriteria() {
-		return (currentCost > currentSol.cost) ? false : true;
+	protected void warmStart(Solution<E> sol) {
+		CL = makeCL();
+		RCL = makeRCL();
+		currentSol = sol.copy();
+		ObjFunction.evaluate(currentSol);
 	}
 
 	/**
-	 * Prints the measures of the new incumbent solution
-	 * 
-	 * @param totalTime Time ellapsed.
+	 * Notifies the listeners and the stream of improvements of a new incumbent
+	 * solution, found at the current iteration.
 	 */
-	private void printSolutionMeasure(double totalTime) {
+	private void notifyImprovement(double time) {
+		for (IncumbentListener<E> listener : listeners)
+			listener.improved(incumbentSol, currIteration, time);
+		ImprovementPublisher<E> pub = publisher;
+		if (pub != null)
+			pub.improved(incumbentSol, currIteration, time);
+	}
+
+	/**
+	 * Runs the constructive phase, or starts from the initial solution if one is
+	 * given, unless the search was resumed, and then the main loop.
+	 */
+	private Solution<E> search(boolean resumed, Solution<E> initial) {
+
+		// the measures of new incumbent solutions are written by another thread
+		AsyncResultSink<E> sink = verbose ? new AsyncResultSink<E>(instName, resultsFileName) : null;
+		Checkpoint checkpoint = (checkpointFile != null) ? new Checkpoint(checkpointFile) : null;
+
+		try {
+
+			if (jmx)
+				registerMetrics();
+
+			if (!resumed) {
+
+				incumbentSol = createEmptySol();
+				if (initial != null) {
+					warmStart(initial);
+				} else {
+					// constructive phase
+					ConstructiveEvent constructive = new ConstructiveEvent();
+					constructive.begin();
+					constructiveHeuristic();
+					if (constructive.shouldCommit()) {
+						constructive.instance = instName;
+						constructive.cost = currentSol.cost;
+						constructive.size = currentSol.size();
+						constructive.commit();
+					}
+				}
+				if (incumbentSol.cost > currentSol.cost) {
+					incumbentSol = currentSol.copy();
+					lastImprovementTime = getElapsedTime();
+					notifyImprovement(lastImprovementTime);
+				}
+				TL = makeTL();
+
+			}
 
-		// print result in stdout
-		if (verbose)
-			System.out.println("(Iter. " + currIteration + ", Time " + totalTime + ") BestSol = " + incumbentSol);
+			double nextCheckpoint = getElapsedTime() + checkpointPeriod;
+
+			for (; currIteration < iterations && !shouldStop(); currIteration++) {
+
+				// local search; a scan stopped early applies no move, so a
+				// checkpoint then resumes from this same iteration
+				neighborhoodMove();
+				boolean moved = !halted;
+				metrics.iteration(CL.size());
+
+				if (incumbentSol.cost > currentSol.cost) {
+					// found a better solution
+					ImprovementEvent improvement = new ImprovementEvent();
+					if (improvement.shouldCommit()) {
+						improvement.instance = instName;
+						improvement.iteration = currIteration;
+						improvement.previousCost = incumbentSol.cost;
+						improvement.cost = currentSol.cost;
+						improvement.size = currentSol.size();
+						improvement.commit();
+					}
+					incumbentSol = currentSol.copy();
+					lastImprovement = currIteration;
+					double time = getElapsedTime();
+					lastImprovementTime = time;
+					if (sink != null)
+						sink.improved(incumbentSol, currIteration, time);
+					notifyImprovement(time);
+				}
+
+				if (checkpoint != null && getElapsedTime() >= nextCheckpoint) {
+					checkpoint.save(captureCheckpoint(moved));
+					nextCheckpoint = getElapsedTime() + checkpointPeriod;
+				}
 
-		// write result in file if a file name was given
-		if (resultsFileName != null) {
-			try {
-				printSolutionMeasuresToFile(totalTime);
-			} catch (IOException e) {
-				e.printStackTrace();
-				System.exit(0);
 			}
+
+		} finally {
+			running = false;
+			if (checkpoint != null)
+				checkpoint.close();
+			if (sink != null)
+				sink.close();
+			completeImprovements();
+			if (jmx)
+				unregisterMetrics();
 		}
 
+		return incumbentSol;
 	}
 
 	/**
-	 * Saves the measures of the new incumbent solution to file
+	 * Copies the state of the search after the current iteration, or before it
+	 * if its move was not applied.
 	 * 
-	 * @param totalTime Time ellapsed.
-	 * @throws IOException Necessary for I/O operations.
+	 * @param moved true if the move of the current iteration was applied.
 	 */
-	private void printSolutionMeasuresToFile(double totalTime) throws IOException {
+	private Checkpoint.State captureCheckpoint(boolean moved) {
+
+		int next = moved ? currIteration + 1 : currIteration;
+		double elapsed = getElapsedTime();
+		int improvement = lastImprovement;
+		double improvementTime = lastImprovementTime;
+		byte[] random = Checkpoint.copy(rng);
+		Checkpoint.State state = checkpointable().captureState();
+
+		return out -> {
+			out.writeInt(next);
+			out.writeDouble(elapsed);
+			out.writeInt(improvement);
+			out.writeDouble(improvementTime);
+			out.writeInt(random.length);
+			out.write(random);
+			state.write(out);
+		};
 
-		FileWriter file;
-		File fp = new File(resultsFileName);
+	}
 
-		// create or open file
-		if (!fp.exists()) {
-			file = new FileWriter(resultsFileName);
-			String header = "instance;solutionCost;iterations;time;solutionSize\n";
-			file.write(header);
-		} else {
-			file = new FileWriter(resultsFileName, true);
+	/**
+	 * Completes the stream of improvements of the search that ended.
+	 */
+	private synchronized void completeImprovements() {
+		if (publisher != null) {
+			publisher.close();
+			publisher = null;
 		}
+	}
 
-		// write current result to file
-		String result = String.format("%s;%s;%s;%s;%s\n", instName, -1.00 * incumbentSol.cost,
-				currIteration, totalTime, incumbentSol.size());
-		file.write(result);
-		file.close();
+	/**
+	 * Registers the metrics as an MBean named after the instance. A failure only
+	 * leaves the search unmonitored.
+	 */
+	private void registerMetrics() {
+		try {
+			metrics.register(instName);
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void unregisterMetrics() {
+		try {
+			metrics.unregister();
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
 
+	/**
+	 * A standard stopping criteria for the constructive heuristic is to repeat
+	 * until the incumbent solution improves by inserting a new candidate element.
+	 * 
+	 * @return true if the criteria is met.
+	 */
+	public boolean constructiveStopCriteria() {
+		return (currentCost > currentSol.cost) ? false : true;
 	}
 
 }
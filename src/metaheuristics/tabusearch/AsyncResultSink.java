@@ -0,0 +1,201 @@
+package metaheuristics.tabusearch;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import solutions.Solution;
+
+/**
+ * Writes the measures of each new incumbent solution to stdout and, if a file
+ * name is given, appends them to a results file. The search thread only puts
+ * the event in a bounded queue, and a background thread formats and writes it,
+ * keeping the file open and flushing it whenever the queue is emptied. If the
+ * queue is full the event is dropped, so the search never blocks on I/O.
+ *
+ * @param <E> Generic type of the solution elements.
+ */
+public class AsyncResultSink<E> implements IncumbentListener<E>, Closeable {
+
+	/**
+	 * maximum number of events waiting to be written
+	 */
+	public static final int capacity = 1024;
+
+	/**
+	 * instance name.
+	 */
+	private final String instName;
+
+	/**
+	 * path to store the history file, or null to only print to stdout.
+	 */
+	private final String resultsFileName;
+
+	/**
+	 * events waiting to be written
+	 */
+	private final BlockingQueue<Event<E>> queue = new ArrayBlockingQueue<Event<E>>(capacity);
+
+	/**
+	 * number of events dropped because the queue was full
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * the background writer
+	 */
+	private final Thread writer;
+
+	/**
+	 * event put in the queue by {@link #close()} to end the writer
+	 */
+	private final Event<E> end = new Event<E>(null, 0, 0);
+
+	/**
+	 * Creates the sink and starts its writer thread.
+	 *
+	 * @param instName        The instance name.
+	 * @param resultsFileName The file where the results will be stored, or null.
+	 */
+	public AsyncResultSink(String instName, String resultsFileName) {
+		this.instName = instName;
+		this.resultsFileName = resultsFileName;
+		this.writer = new Thread(this::write, "ts-results-" + instName);
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void improved(Solution<E> incumbent, int iteration, double time) {
+		if (!queue.offer(new Event<E>(incumbent, iteration, time)))
+			dropped.incrementAndGet();
+	}
+
+	/**
+	 * Gives the number of events dropped because the queue was full.
+	 *
+	 * @return The number of dropped events.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Waits for the queued events to be written and closes the results file.
+	 */
+	@Override
+	public void close() {
+		try {
+			// the writer may have stopped on an I/O error, leaving the queue full
+			while (!queue.offer(end, 100, TimeUnit.MILLISECONDS)) {
+				if (!writer.isAlive())
+					return;
+			}
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Main loop of the writer thread.
+	 */
+	private void write() {
+
+		Writer file = null;
+		List<Event<E>> batch = new ArrayList<Event<E>>();
+
+		try {
+
+			if (resultsFileName != null)
+				file = openResultsFile();
+
+			while (true) {
+
+				batch.add(queue.take());
+				queue.drainTo(batch);
+
+				for (Event<E> ev : batch) {
+
+					if (ev == end) {
+						if (dropped.get() > 0)
+							System.out.println(dropped.get() + " incumbent updates were not recorded");
+						return;
+					}
+
+					// print result in stdout
+					System.out.println("(Iter. " + ev.iteration + ", Time " + ev.time + ") BestSol = " + ev.sol);
+
+					// write result in file if a file name was given
+					if (file != null) {
+						file.write(String.format("%s;%s;%s;%s;%s\n", instName, -1.00 * ev.sol.cost, ev.iteration,
+								ev.time, ev.sol.size()));
+					}
+
+				}
+
+				batch.clear();
+				if (file != null)
+					file.flush();
+
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Opens the results file for appending, writing the header if it is new.
+	 */
+	private Writer openResultsFile() throws IOException {
+
+		boolean exists = new File(resultsFileName).exists();
+		Writer file = new BufferedWriter(new FileWriter(resultsFileName, true));
+
+		if (!exists)
+			file.write("instance;solutionCost;iterations;time;solutionSize\n");
+
+		return file;
+
+	}
+
+	/**
+	 * A new incumbent solution and when it was found.
+	 */
+	private static class Event<E> {
+
+		final Solution<E> sol;
+		final int iteration;
+		final double time;
+
+		Event(Solution<E> sol, int iteration, double time) {
+			this.sol = sol;
+			this.iteration = iteration;
+			this.time = time;
+		}
+
+	}
+
+}
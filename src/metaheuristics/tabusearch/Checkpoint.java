@@ -0,0 +1,193 @@
+package metaheuristics.tabusearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoint file of a Tabu Search, from which the search can be resumed. It
+ * holds a header with the format version, followed by the state written by the
+ * search, in the big-endian format of {@link DataOutput}. The state is copied
+ * by the search thread and written by a background thread, under a temporary
+ * name which is then moved over the checkpoint file, so a crash while writing
+ * leaves the previous checkpoint intact. If a checkpoint is still being
+ * written when the next one is taken, only the newest one waiting is kept.
+ */
+public class Checkpoint implements Closeable {
+
+	/**
+	 * "TSCP" as an int
+	 */
+	private static final int magic = 0x54534350;
+
+	private static final int version = 1;
+
+	/**
+	 * State of a search copied for a checkpoint, which must not share mutable
+	 * data with the search.
+	 */
+	@FunctionalInterface
+	public interface State {
+
+		/**
+		 * Writes the state, from the writer thread.
+		 *
+		 * @param out The checkpoint file.
+		 * @throws IOException Necessary for I/O operations.
+		 */
+		public abstract void write(DataOutput out) throws IOException;
+
+	}
+
+	/**
+	 * the checkpoint file
+	 */
+	private final Path path;
+
+	/**
+	 * the background writer, with room for a single waiting state
+	 */
+	private final ThreadPoolExecutor writer;
+
+	/**
+	 * Creates the checkpoint writer.
+	 *
+	 * @param filename The checkpoint file.
+	 */
+	public Checkpoint(String filename) {
+		this.path = Paths.get(filename).toAbsolutePath();
+		this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1), r -> {
+			Thread t = new Thread(r, "ts-checkpoint");
+			t.setDaemon(true);
+			return t;
+		}, new ThreadPoolExecutor.DiscardOldestPolicy());
+	}
+
+	/**
+	 * Schedules a state to be written, replacing the one waiting, if any.
+	 *
+	 * @param state The state.
+	 */
+	public void save(State state) {
+		writer.execute(() -> {
+			try {
+				write(state);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Waits for the scheduled states to be written and stops the writer.
+	 */
+	@Override
+	public void close() {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void write(State state) throws IOException {
+
+		Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(magic);
+				out.writeInt(version);
+				state.write(out);
+			}
+			try {
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+
+	}
+
+	/**
+	 * Opens a checkpoint file to read the state written to it.
+	 *
+	 * @param filename The checkpoint file.
+	 * @return The stream positioned at the state.
+	 * @throws IOException If the file cannot be read or is not a checkpoint.
+	 */
+	public static DataInputStream open(String filename) throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(filename))));
+		try {
+			if (in.readInt() != magic || in.readInt() != version)
+				throw new IOException(filename + " is not a checkpoint of this version");
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return in;
+
+	}
+
+	/**
+	 * Copies the state of a random number generator, so that it can be written
+	 * while the generator is still used.
+	 *
+	 * @param rng The random number generator.
+	 * @return The serialized state.
+	 */
+	public static byte[] copy(Random rng) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(rng);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads a random number generator written as the length and the bytes
+	 * given by {@link #copy(Random)}.
+	 *
+	 * @param in The checkpoint file.
+	 * @return The random number generator, in the state it was copied.
+	 * @throws IOException If the state cannot be read.
+	 */
+	public static Random readRandom(DataInput in) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || n > 4096)
+			throw new IOException("malformed random number generator state");
+		byte[] bytes = new byte[n];
+		in.readFully(bytes);
+		try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			objects.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+			return (Random) objects.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("malformed random number generator state", e);
+		}
+	}
+
+}
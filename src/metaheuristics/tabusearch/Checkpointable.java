@@ -0,0 +1,32 @@
+package metaheuristics.tabusearch;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * A Tabu Search which can write checkpoints and be resumed from them, as set by
+ * {@link AbstractTS#setCheckpoint(String, double)} and
+ * {@link AbstractTS#resume(String, double)}. It gives the state which is not
+ * kept by {@link AbstractTS}, such as the current and incumbent solutions, CL
+ * and the tabu memory.
+ */
+public interface Checkpointable {
+
+	/**
+	 * Copies the state of the search for a checkpoint. It is called by the
+	 * search thread between iterations.
+	 *
+	 * @return The state, which must not share mutable data with the search.
+	 */
+	public abstract Checkpoint.State captureState();
+
+	/**
+	 * Restores the state written by {@link #captureState()}, leaving the search
+	 * ready to run its next iteration.
+	 *
+	 * @param in The checkpoint file.
+	 * @throws IOException If the state cannot be read or is not of this search.
+	 */
+	public abstract void restoreState(DataInput in) throws IOException;
+
+}
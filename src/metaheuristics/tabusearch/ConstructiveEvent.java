@@ -0,0 +1,28 @@
+package metaheuristics.tabusearch;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of the constructive phase of a Tabu Search.
+ */
+@Name("metaheuristics.tabusearch.Constructive")
+@Label("Constructive Phase")
+@Category("Tabu Search")
+@Description("Construction of the initial solution")
+@StackTrace(false)
+public class ConstructiveEvent extends jdk.jfr.Event {
+
+	@Label("Instance")
+	public String instance;
+
+	@Label("Solution Cost")
+	public double cost;
+
+	@Label("Solution Size")
+	public int size;
+
+}
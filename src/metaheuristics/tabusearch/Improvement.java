@@ -0,0 +1,56 @@
+package metaheuristics.tabusearch;
+
+import java.util.Collections;
+import java.util.List;
+
+import solutions.Solution;
+
+/**
+ * A new incumbent solution of a Tabu Search and when it was found, as
+ * published by {@link ImprovementPublisher}.
+ *
+ * @param <E> Generic type of the solution elements.
+ */
+public class Improvement<E> {
+
+	/**
+	 * the iteration at which the solution was found
+	 */
+	public final int iteration;
+
+	/**
+	 * time elapsed since the search started, in seconds
+	 */
+	public final double time;
+
+	/**
+	 * the cost of the solution
+	 */
+	public final double cost;
+
+	/**
+	 * the elements of the solution, which cannot be modified
+	 */
+	public final List<E> solution;
+
+	/**
+	 * Constructor for the Improvement class. The incumbent is wrapped, not
+	 * copied, since the search never modifies it.
+	 *
+	 * @param incumbent The new incumbent solution.
+	 * @param iteration The iteration at which it was found.
+	 * @param time      Time elapsed since the search started, in seconds.
+	 */
+	public Improvement(Solution<E> incumbent, int iteration, double time) {
+		this.iteration = iteration;
+		this.time = time;
+		this.cost = incumbent.cost;
+		this.solution = Collections.unmodifiableList(incumbent);
+	}
+
+	@Override
+	public String toString() {
+		return "(Iter. " + iteration + ", Time " + time + ") cost=" + cost + ", size=" + solution.size();
+	}
+
+}
@@ -0,0 +1,34 @@
+package metaheuristics.tabusearch;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of an improvement of the incumbent solution of a Tabu Search.
+ */
+@Name("metaheuristics.tabusearch.Improvement")
+@Label("Incumbent Improvement")
+@Category("Tabu Search")
+@Description("A better incumbent solution was found")
+@StackTrace(false)
+public class ImprovementEvent extends jdk.jfr.Event {
+
+	@Label("Instance")
+	public String instance;
+
+	@Label("Iteration")
+	public int iteration;
+
+	@Label("Previous Cost")
+	public double previousCost;
+
+	@Label("Solution Cost")
+	public double cost;
+
+	@Label("Solution Size")
+	public int size;
+
+}
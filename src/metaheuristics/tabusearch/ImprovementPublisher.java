@@ -0,0 +1,118 @@
+package metaheuristics.tabusearch;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+import solutions.Solution;
+
+/**
+ * Publishes the improvements of a Tabu Search as a reactive stream. Each
+ * subscriber has a bounded buffer and receives the events on a daemon thread,
+ * as fast as it requests them. When the buffer of a slow subscriber is full,
+ * the event is either dropped for that subscriber, so the search thread never
+ * waits, or the search thread blocks until there is room. Closing the
+ * publisher completes the stream of every subscriber once its buffered events
+ * are delivered.
+ *
+ * @param <E> Generic type of the solution elements.
+ */
+public class ImprovementPublisher<E> implements Flow.Publisher<Improvement<E>>, IncumbentListener<E>, Closeable {
+
+	/**
+	 * default buffer capacity of each subscriber
+	 */
+	public static final int capacity = Flow.defaultBufferSize();
+
+	/**
+	 * the underlying publisher
+	 */
+	private final SubmissionPublisher<Improvement<E>> publisher;
+
+	/**
+	 * the threads which deliver the events, shut down with the publisher
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * flag that indicates whether events are dropped for full subscribers,
+	 * instead of blocking the search
+	 */
+	private final boolean drop;
+
+	/**
+	 * number of events dropped, counted once per subscriber
+	 */
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Creates a publisher which drops events for slow subscribers.
+	 */
+	public ImprovementPublisher() {
+		this(capacity, true);
+	}
+
+	/**
+	 * Constructor for the ImprovementPublisher class.
+	 *
+	 * @param bufferSize The maximum number of events buffered per subscriber.
+	 * @param drop       true to drop events for subscribers whose buffer is full,
+	 *                   false to block the search until they catch up.
+	 */
+	public ImprovementPublisher(int bufferSize, boolean drop) {
+		this.executor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "ts-improvements");
+			t.setDaemon(true);
+			return t;
+		});
+		this.publisher = new SubmissionPublisher<Improvement<E>>(executor, bufferSize);
+		this.drop = drop;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Improvement<E>> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	@Override
+	public void improved(Solution<E> incumbent, int iteration, double time) {
+
+		if (publisher.isClosed() || !publisher.hasSubscribers())
+			return;
+
+		Improvement<E> event = new Improvement<E>(incumbent, iteration, time);
+		if (drop) {
+			publisher.offer(event, (subscriber, item) -> {
+				dropped.increment();
+				return false;
+			});
+		} else {
+			publisher.submit(event);
+		}
+
+	}
+
+	/**
+	 * Gives the number of events dropped because a subscriber was too slow.
+	 *
+	 * @return The number of dropped events, counted once per subscriber.
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Completes the stream of every subscriber and shuts the delivery threads
+	 * down once they have delivered the buffered events. Events published
+	 * afterwards are ignored.
+	 */
+	@Override
+	public void close() {
+		publisher.close();
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,24 @@
+package metaheuristics.tabusearch;
+
+import solutions.Solution;
+
+/**
+ * Listener notified by {@link AbstractTS} whenever the incumbent solution is
+ * improved.
+ * 
+ * @param <E> Generic type of the solution elements.
+ */
+public interface IncumbentListener<E> {
+
+	/**
+	 * Called by the search thread right after a better solution is found. The
+	 * incumbent is never modified by the search afterwards, so it can be kept as
+	 * is, but it must not be modified by the listener.
+	 * 
+	 * @param incumbent The new incumbent solution.
+	 * @param iteration The iteration at which it was found.
+	 * @param time      Time ellapsed since the search started, in seconds.
+	 */
+	public abstract void improved(Solution<E> incumbent, int iteration, double time);
+
+}
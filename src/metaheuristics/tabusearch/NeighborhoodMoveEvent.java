@@ -0,0 +1,37 @@
+package metaheuristics.tabusearch;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a neighborhood move of a Tabu Search, from the candidate list
+ * update to the move applied.
+ */
+@Name("metaheuristics.tabusearch.NeighborhoodMove")
+@Label("Neighborhood Move")
+@Category("Tabu Search")
+@Description("A neighborhood move, with the type and cost variation of the move applied")
+@StackTrace(false)
+public class NeighborhoodMoveEvent extends jdk.jfr.Event {
+
+	@Label("Iteration")
+	public int iteration;
+
+	@Label("Move Type")
+	public String moveType;
+
+	@Label("Cost Variation")
+	public double deltaCost;
+
+	@Label("Candidates")
+	@Description("Size of the candidate list")
+	public int candidates;
+
+	@Label("Neighborhood Size")
+	@Description("Number of moves of the neighborhood scanned, before any budget")
+	public long neighborhoodSize;
+
+}
@@ -0,0 +1,130 @@
+package metaheuristics.tabusearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import solutions.Solution;
+
+/**
+ * Portfolio of independent Tabu Searches run on separate threads. Every search
+ * publishes its improvements to a shared incumbent, and all of them are stopped
+ * once the target cost is reached. Each search is limited by the time given to
+ * {@link #solve(double, double)}, and is expected to be configured with its own
+ * seed and parameters, since identical searches would follow the same
+ * trajectory.
+ *
+ * @param <E> Generic type of the candidate to enter the solution.
+ */
+public class PortfolioTS<E> {
+
+	/**
+	 * the searches of the portfolio
+	 */
+	private final List<AbstractTS<E>> searches;
+
+	/**
+	 * the best solution published by any search
+	 */
+	private final AtomicReference<Solution<E>> incumbent = new AtomicReference<Solution<E>>();
+
+	/**
+	 * the target cost of the current run
+	 */
+	private volatile double targetCost;
+
+	/**
+	 * flag set once the searches of the current run must stop
+	 */
+	private volatile boolean done;
+
+	/**
+	 * Constructor for the PortfolioTS class. The portfolio registers a listener
+	 * and a stopping criterion on each search.
+	 *
+	 * @param searches The searches to be run, each one on its own thread.
+	 */
+	public PortfolioTS(List<AbstractTS<E>> searches) {
+		this.searches = new ArrayList<AbstractTS<E>>(searches);
+		for (AbstractTS<E> ts : this.searches) {
+			ts.addIncumbentListener((sol, iteration, time) -> {
+				publish(sol);
+				if (sol.cost <= targetCost)
+					done = true;
+			});
+			ts.addStoppingCriterion(StoppingCriterion.cancelled(() -> done));
+		}
+	}
+
+	/**
+	 * Runs all searches until each one reaches its iteration count or the time
+	 * limit, or until any of them finds a solution with cost at most targetCost.
+	 *
+	 * @param maxTime    Time limit.
+	 * @param targetCost Cost at which all searches are stopped.
+	 * @return The best solution found by the searches in this run.
+	 */
+	public Solution<E> solve(double maxTime, double targetCost) {
+
+		incumbent.set(null);
+		this.targetCost = targetCost;
+		this.done = false;
+
+		List<Callable<Solution<E>>> tasks = new ArrayList<Callable<Solution<E>>>();
+		for (AbstractTS<E> ts : searches)
+			tasks.add(() -> ts.solve(maxTime));
+
+		ExecutorService executor = Executors.newFixedThreadPool(searches.size());
+		try {
+			for (Future<Solution<E>> result : executor.invokeAll(tasks))
+				publish(result.get());
+		} catch (InterruptedException e) {
+			stop();
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+
+		return incumbent.get();
+
+	}
+
+	/**
+	 * Stops all searches of the current run at the end of their current
+	 * iteration, including those which have not started yet.
+	 */
+	public void stop() {
+		done = true;
+	}
+
+	/**
+	 * Gives the best solution published so far, or null if there is none.
+	 *
+	 * @return The shared incumbent solution.
+	 */
+	public Solution<E> getIncumbent() {
+		return incumbent.get();
+	}
+
+	/**
+	 * Replaces the shared incumbent by a solution if it is better.
+	 *
+	 * @param sol A solution which is not modified afterwards.
+	 */
+	private void publish(Solution<E> sol) {
+		Solution<E> current;
+		do {
+			current = incumbent.get();
+			if (current != null && current.cost <= sol.cost)
+				return;
+		} while (!incumbent.compareAndSet(current, sol));
+	}
+
+}
@@ -0,0 +1,321 @@
+package metaheuristics.tabusearch;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import solutions.Solution;
+
+/**
+ * Live measures of a Tabu Search. The search threads only add to striped
+ * counters, which never contend with each other, and the measures are summed
+ * when read, either through JMX or as a {@link Snapshot}.
+ */
+public class SearchMetrics implements SearchMetricsMXBean {
+
+	/**
+	 * the search being measured
+	 */
+	private final AbstractTS<?> search;
+
+	/**
+	 * names of the move types and the moves evaluated of each type
+	 */
+	private volatile String[] moveTypes = new String[0];
+	private volatile LongAdder[] moves = new LongAdder[0];
+
+	private final LongAdder iterations = new LongAdder();
+	private final LongAdder aspirations = new LongAdder();
+	private final LongAdder cycleHits = new LongAdder();
+	private final LongAdder updateNanos = new LongAdder();
+	private final LongAdder evaluationNanos = new LongAdder();
+
+	/**
+	 * size of the candidate list at the last iteration
+	 */
+	private volatile int clSize;
+
+	/**
+	 * name under which the metrics are registered, or null
+	 */
+	private ObjectName name;
+
+	/**
+	 * Constructor for the SearchMetrics class.
+	 *
+	 * @param search The search to be measured.
+	 */
+	public SearchMetrics(AbstractTS<?> search) {
+		this.search = search;
+	}
+
+	/**
+	 * Sets the names of the move types counted by {@link #addMoves(int, long)},
+	 * which are indexed by their position. Null names are left out of the
+	 * measures.
+	 *
+	 * @param names The move types.
+	 */
+	public void setMoveTypes(String... names) {
+		LongAdder[] adders = new LongAdder[names.length];
+		for (int i = 0; i < adders.length; i++)
+			adders[i] = new LongAdder();
+		moves = adders;
+		moveTypes = names.clone();
+	}
+
+	/**
+	 * Clears all counters, when a search starts.
+	 */
+	public void reset() {
+		iterations.reset();
+		aspirations.reset();
+		cycleHits.reset();
+		updateNanos.reset();
+		evaluationNanos.reset();
+		for (LongAdder adder : moves)
+			adder.reset();
+		clSize = 0;
+	}
+
+	/**
+	 * Counts an iteration.
+	 *
+	 * @param clSize The size of the candidate list.
+	 */
+	public void iteration(int clSize) {
+		iterations.increment();
+		this.clSize = clSize;
+	}
+
+	/**
+	 * Counts moves evaluated of a type.
+	 *
+	 * @param type The index of the move type.
+	 * @param n    The number of moves.
+	 */
+	public void addMoves(int type, long n) {
+		if (n > 0)
+			moves[type].add(n);
+	}
+
+	/**
+	 * Counts a tabu move accepted by the aspiration criterion.
+	 */
+	public void aspiration() {
+		aspirations.increment();
+	}
+
+	/**
+	 * Counts a move rejected because it leads back to a recently visited
+	 * solution.
+	 */
+	public void cycleHit() {
+		cycleHits.increment();
+	}
+
+	/**
+	 * Adds time spent updating the candidate list.
+	 *
+	 * @param nanos The time, in nanoseconds.
+	 */
+	public void addUpdateTime(long nanos) {
+		updateNanos.add(nanos);
+	}
+
+	/**
+	 * Adds time spent evaluating the neighborhood.
+	 *
+	 * @param nanos The time, in nanoseconds.
+	 */
+	public void addEvaluationTime(long nanos) {
+		evaluationNanos.add(nanos);
+	}
+
+	@Override
+	public long getIterations() {
+		return iterations.sum();
+	}
+
+	@Override
+	public double getIterationsPerSecond() {
+		double time = search.getElapsedTime();
+		return (time > 0) ? iterations.sum() / time : 0;
+	}
+
+	@Override
+	public Map<String, Long> getMovesEvaluated() {
+		String[] names = moveTypes;
+		LongAdder[] adders = moves;
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < Math.min(names.length, adders.length); i++)
+			if (names[i] != null)
+				map.put(names[i], adders[i].sum());
+		return map;
+	}
+
+	@Override
+	public Map<String, Double> getMovesPerIteration() {
+		long its = Math.max(1, iterations.sum());
+		Map<String, Double> map = new LinkedHashMap<String, Double>();
+		for (Map.Entry<String, Long> e : getMovesEvaluated().entrySet())
+			map.put(e.getKey(), e.getValue() / (double) its);
+		return map;
+	}
+
+	@Override
+	public int getCLSize() {
+		return clSize;
+	}
+
+	@Override
+	public long getAspirationHits() {
+		return aspirations.sum();
+	}
+
+	@Override
+	public long getCycleHits() {
+		return cycleHits.sum();
+	}
+
+	@Override
+	public double getUpdateCLTime() {
+		return updateNanos.sum() / 1e9;
+	}
+
+	@Override
+	public double getEvaluationTime() {
+		return evaluationNanos.sum() / 1e9;
+	}
+
+	@Override
+	public double getCurrentCost() {
+		return search.getCurrentCost();
+	}
+
+	@Override
+	public double getIncumbentCost() {
+		Solution<?> incumbent = search.getIncumbent();
+		return (incumbent == null) ? Double.NaN : incumbent.cost;
+	}
+
+	@Override
+	public double getTimeSinceImprovement() {
+		return search.getElapsedTime() - search.getLastImprovementTime();
+	}
+
+	/**
+	 * Reads all measures at once.
+	 *
+	 * @return The current measures.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Passes a snapshot of the measures to a consumer periodically, from a
+	 * daemon thread, until the returned handle is closed.
+	 *
+	 * @param period   The period, in seconds.
+	 * @param consumer The consumer of the snapshots.
+	 * @return The handle which stops the snapshots.
+	 */
+	public Closeable schedule(double period, Consumer<Snapshot> consumer) {
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ts-metrics");
+			t.setDaemon(true);
+			return t;
+		});
+
+		long nanos = (long) (period * 1e9);
+		executor.scheduleAtFixedRate(() -> consumer.accept(snapshot()), nanos, nanos, TimeUnit.NANOSECONDS);
+
+		return executor::shutdownNow;
+
+	}
+
+	/**
+	 * Registers the metrics in the platform MBean server, under the domain
+	 * metaheuristics.tabusearch, type SearchMetrics and the given name. A search
+	 * registered twice keeps only the last name.
+	 *
+	 * @param instName The name, such as the instance name.
+	 * @throws JMException If the metrics cannot be registered.
+	 */
+	public synchronized void register(String instName) throws JMException {
+		unregister();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		name = new ObjectName("metaheuristics.tabusearch:type=SearchMetrics,name=" + ObjectName.quote(instName)
+				+ ",id=" + Integer.toHexString(System.identityHashCode(search)));
+		server.registerMBean(this, name);
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if registered.
+	 *
+	 * @throws JMException If the metrics cannot be unregistered.
+	 */
+	public synchronized void unregister() throws JMException {
+		if (name != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name = null;
+		}
+	}
+
+	/**
+	 * The measures of a search at a moment.
+	 */
+	public static class Snapshot {
+
+		public final double time;
+		public final long iterations;
+		public final double iterationsPerSecond;
+		public final Map<String, Double> movesPerIteration;
+		public final int clSize;
+		public final long aspirationHits;
+		public final long cycleHits;
+		public final double updateCLTime;
+		public final double evaluationTime;
+		public final double currentCost;
+		public final double incumbentCost;
+		public final double timeSinceImprovement;
+
+		Snapshot(SearchMetrics m) {
+			time = m.search.getElapsedTime();
+			iterations = m.getIterations();
+			iterationsPerSecond = m.getIterationsPerSecond();
+			movesPerIteration = m.getMovesPerIteration();
+			clSize = m.getCLSize();
+			aspirationHits = m.getAspirationHits();
+			cycleHits = m.getCycleHits();
+			updateCLTime = m.getUpdateCLTime();
+			evaluationTime = m.getEvaluationTime();
+			currentCost = m.getCurrentCost();
+			incumbentCost = m.getIncumbentCost();
+			timeSinceImprovement = m.getTimeSinceImprovement();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"time=%.1f iterations=%d it/s=%.2f moves/it=%s |CL|=%d aspirations=%d cycleHits=%d "
+							+ "updateCL=%.2fs evaluation=%.2fs current=%s incumbent=%s sinceImprovement=%.1fs",
+					time, iterations, iterationsPerSecond, movesPerIteration, clSize, aspirationHits, cycleHits,
+					updateCLTime, evaluationTime, currentCost, incumbentCost, timeSinceImprovement);
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+package metaheuristics.tabusearch;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link SearchMetrics}, through which a running Tabu
+ * Search can be watched with any JMX client.
+ */
+public interface SearchMetricsMXBean {
+
+	/**
+	 * @return The number of iterations done.
+	 */
+	public abstract long getIterations();
+
+	/**
+	 * @return The mean number of iterations per second since the search started.
+	 */
+	public abstract double getIterationsPerSecond();
+
+	/**
+	 * @return The number of moves evaluated, by move type.
+	 */
+	public abstract Map<String, Long> getMovesEvaluated();
+
+	/**
+	 * @return The mean number of moves evaluated per iteration, by move type.
+	 */
+	public abstract Map<String, Double> getMovesPerIteration();
+
+	/**
+	 * @return The size of the candidate list at the last iteration.
+	 */
+	public abstract int getCLSize();
+
+	/**
+	 * @return The number of tabu moves let through by the aspiration criterion
+	 *         while evaluating the neighborhood.
+	 */
+	public abstract long getAspirationHits();
+
+	/**
+	 * @return The number of moves rejected because they lead back to a recently
+	 *         visited solution.
+	 */
+	public abstract long getCycleHits();
+
+	/**
+	 * @return The time spent updating the candidate list, in seconds.
+	 */
+	public abstract double getUpdateCLTime();
+
+	/**
+	 * @return The time spent evaluating the neighborhood, in seconds.
+	 */
+	public abstract double getEvaluationTime();
+
+	/**
+	 * @return The cost of the current solution.
+	 */
+	public abstract double getCurrentCost();
+
+	/**
+	 * @return The cost of the incumbent solution.
+	 */
+	public abstract double getIncumbentCost();
+
+	/**
+	 * @return The time since the incumbent solution last improved, in seconds.
+	 */
+	public abstract double getTimeSinceImprovement();
+
+}
@@ -0,0 +1,66 @@
+package metaheuristics.tabusearch;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Criterion to stop a Tabu Search before it reaches its iteration count or
+ * time limit. It is checked between iterations and, by searches that support
+ * it, inside long neighborhood scans, possibly from other threads, so it must
+ * be cheap and thread-safe.
+ *
+ * @param <E> Generic type of the solution elements.
+ */
+@FunctionalInterface
+public interface StoppingCriterion<E> {
+
+	/**
+	 * Checks if the search should stop.
+	 *
+	 * @param search The search being run.
+	 * @return true if the criterion is met.
+	 */
+	public abstract boolean isMet(AbstractTS<E> search);
+
+	/**
+	 * Stops once the incumbent solution has cost at most targetCost.
+	 *
+	 * @param targetCost The target cost.
+	 * @return The criterion.
+	 */
+	public static <E> StoppingCriterion<E> targetCost(double targetCost) {
+		return search -> search.getIncumbent().cost <= targetCost;
+	}
+
+	/**
+	 * Stops once the incumbent solution has not improved for the given number of
+	 * iterations.
+	 *
+	 * @param iterations The number of iterations without improvement.
+	 * @return The criterion.
+	 */
+	public static <E> StoppingCriterion<E> stagnation(int iterations) {
+		return search -> search.getIteration() - search.getLastImprovement() >= iterations;
+	}
+
+	/**
+	 * Stops once the given time has elapsed since the search started, including
+	 * the constructive phase.
+	 *
+	 * @param seconds The time, in seconds.
+	 * @return The criterion.
+	 */
+	public static <E> StoppingCriterion<E> deadline(double seconds) {
+		return search -> search.getElapsedTime() >= seconds;
+	}
+
+	/**
+	 * Stops once an external flag, such as a cancelled request, is set.
+	 *
+	 * @param cancelled Tells if the search was cancelled.
+	 * @return The criterion.
+	 */
+	public static <E> StoppingCriterion<E> cancelled(BooleanSupplier cancelled) {
+		return search -> cancelled.getAsBoolean();
+	}
+
+}
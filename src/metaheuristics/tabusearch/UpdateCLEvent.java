@@ -0,0 +1,23 @@
+package metaheuristics.tabusearch;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of an update of the candidate list of a Tabu Search.
+ */
+@Name("metaheuristics.tabusearch.UpdateCL")
+@Label("Candidate List Update")
+@Category("Tabu Search")
+@Description("Update of the candidate list to the current solution")
+@StackTrace(false)
+public class UpdateCLEvent extends jdk.jfr.Event {
+
+	@Label("Candidates")
+	@Description("Size of the candidate list after the update")
+	public int candidates;
+
+}
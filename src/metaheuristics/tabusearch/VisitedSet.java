@@ -0,0 +1,136 @@
+package metaheuristics.tabusearch;
+
+/**
+ * Bounded set of the hashes of the most recently visited solutions. Hashes are
+ * kept in an open-addressing table with linear probing, twice as large as the
+ * capacity, and in a ring buffer in insertion order; once the set is full,
+ * each new hash evicts the oldest one. No objects are allocated after
+ * construction. Lookups may run concurrently with each other, but not with
+ * {@link #add(long)}.
+ */
+public class VisitedSet {
+
+	/**
+	 * marks an empty slot of the table; the hash 0, of the empty solution, is
+	 * mapped to another value
+	 */
+	private static final long empty = 0;
+
+	private final long[] table;
+	private final long[] ring;
+	private final int mask;
+
+	/**
+	 * next position of the ring buffer and number of hashes in the set
+	 */
+	private int next, size;
+
+	/**
+	 * Constructor for the VisitedSet class.
+	 *
+	 * @param capacity Maximum number of hashes kept.
+	 */
+	public VisitedSet(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive");
+		int tableSize = Integer.highestOneBit(Math.max(2, capacity - 1)) << 2;
+		table = new long[tableSize];
+		ring = new long[capacity];
+		mask = tableSize - 1;
+	}
+
+	/**
+	 * Checks if a hash is in the set.
+	 *
+	 * @param hash The hash.
+	 * @return true if it was added and not evicted yet.
+	 */
+	public boolean contains(long hash) {
+		hash = key(hash);
+		for (int i = slot(hash);; i = (i + 1) & mask) {
+			if (table[i] == hash)
+				return true;
+			if (table[i] == empty)
+				return false;
+		}
+	}
+
+	/**
+	 * Adds a hash to the set, evicting the oldest one if it is full.
+	 *
+	 * @param hash The hash.
+	 */
+	public void add(long hash) {
+
+		hash = key(hash);
+		int i = slot(hash);
+		for (; table[i] != empty; i = (i + 1) & mask)
+			if (table[i] == hash)
+				return;
+
+		if (size == ring.length)
+			delete(ring[next]);
+		else
+			size++;
+
+		table[i] = hash;
+		ring[next] = hash;
+		next = (next + 1) % ring.length;
+
+	}
+
+	/**
+	 * Gives the number of hashes in the set.
+	 *
+	 * @return The size of the set.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gives the hashes in the set from the oldest to the newest, which, added in
+	 * this order to an empty set, rebuild it.
+	 *
+	 * @return The hashes.
+	 */
+	public long[] toArray() {
+		long[] hashes = new long[size];
+		int first = (size == ring.length) ? next : 0;
+		for (int i = 0; i < size; i++)
+			hashes[i] = ring[(first + i) % ring.length];
+		return hashes;
+	}
+
+	/**
+	 * Removes a key from the table, shifting back the keys after it in its probe
+	 * sequence so that lookups never stop at the freed slot too early.
+	 */
+	private void delete(long key) {
+
+		int i = slot(key);
+		while (table[i] != key)
+			i = (i + 1) & mask;
+
+		for (int j = (i + 1) & mask; table[j] != empty; j = (j + 1) & mask) {
+			int home = slot(table[j]);
+			// move table[j] back if its home slot is not between i and j
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				table[i] = table[j];
+				i = j;
+			}
+		}
+		table[i] = empty;
+
+	}
+
+	private static long key(long hash) {
+		return (hash == empty) ? 0x9E3779B97F4A7C15L : hash;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+}
@@ -0,0 +1,75 @@
+package problems;
+
+import solutions.Solution;
+
+/**
+ * Evaluator of a problem whose costs are integers, which gives them as
+ * primitive longs. The neighborhood scans of a metaheuristic call these methods
+ * millions of times per iteration, so they must not box their results; the
+ * {@link Evaluator} methods are implemented on top of them for the code that
+ * only knows the generic interface.
+ *
+ * @param <E> Generic type of the solution elements.
+ */
+public interface LongEvaluator<E> extends Evaluator<E> {
+
+	/**
+	 * Evaluates a solution, also setting its cost.
+	 *
+	 * @param sol the solution under evaluation.
+	 * @return the evaluation of the solution.
+	 */
+	public abstract long evaluateAsLong(Solution<E> sol);
+
+	/**
+	 * Primitive variant of {@link #evaluateInsertionCost(Object, Solution)}.
+	 *
+	 * @param elem the element under consideration for insertion.
+	 * @param sol  the solution for which the element insertion is being evaluated.
+	 * @return the cost variation resulting from the element insertion into the
+	 *         solution.
+	 */
+	public abstract long evaluateInsertionCostAsLong(E elem, Solution<E> sol);
+
+	/**
+	 * Primitive variant of {@link #evaluateRemovalCost(Object, Solution)}.
+	 *
+	 * @param elem the element under consideration for removal.
+	 * @param sol  the solution for which the element removal is being evaluated.
+	 * @return the cost variation resulting from the element removal of the
+	 *         solution.
+	 */
+	public abstract long evaluateRemovalCostAsLong(E elem, Solution<E> sol);
+
+	/**
+	 * Primitive variant of {@link #evaluateExchangeCost(Object, Object, Solution)}.
+	 *
+	 * @param elemIn  the element under consideration for insertion.
+	 * @param elemOut the element under consideration for removal.
+	 * @param sol     the solution for which the elements exchange is being
+	 *                evaluated.
+	 * @return the cost variation resulting from the elements exchange.
+	 */
+	public abstract long evaluateExchangeCostAsLong(E elemIn, E elemOut, Solution<E> sol);
+
+	@Override
+	public default Double evaluate(Solution<E> sol) {
+		return (double) evaluateAsLong(sol);
+	}
+
+	@Override
+	public default Double evaluateInsertionCost(E elem, Solution<E> sol) {
+		return (double) evaluateInsertionCostAsLong(elem, sol);
+	}
+
+	@Override
+	public default Double evaluateRemovalCost(E elem, Solution<E> sol) {
+		return (double) evaluateRemovalCostAsLong(elem, sol);
+	}
+
+	@Override
+	public default Double evaluateExchangeCost(E elemIn, E elemOut, Solution<E> sol) {
+		return (double) evaluateExchangeCostAsLong(elemIn, elemOut, sol);
+	}
+
+}
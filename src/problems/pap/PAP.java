@@ -1,12 +1,11 @@
 package problems.pap;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StreamTokenizer;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
 
-import problems.Evaluator;
+import problems.LongEvaluator;
 import solutions.Solution;
 
 /**
@@ -15,13 +14,20 @@ import solutions.Solution;
  * 
  * @author brichau, einnarelli, rmeirelles
  */
-public class PAP implements Evaluator<int[]> {
+public class PAP implements LongEvaluator<int[]> {
 
   /**
    * dimension of the domain
    */
   public final Integer size;
 
+  /**
+   * flag that indicates whether instances should be loaded from a binary cache
+   * next to the instance file, which is written on the first load and rewritten
+   * whenever the instance file changes
+   */
+  public static boolean binaryCache = false;
+
   /**
    * penalty given to infeasible solutions
    */
@@ -87,6 +93,47 @@ public class PAP implements Evaluator<int[]> {
    */
   public int[][] z;
 
+  /**
+   * number of elements of the solution with professor p and discipline d
+   */
+  public int[][] nx;
+
+  /**
+   * number of elements of the solution with discipline d and time t
+   */
+  public int[][] ny;
+
+  /**
+   * number of elements of the solution with professor p and time t
+   */
+  public int[][] nz;
+
+  /**
+   * solution whose variables and accumulators are currently kept up to date by
+   * the apply operations, or null if there is none
+   */
+  protected Solution<int[]> tracked;
+
+  /**
+   * times at which professor p can work, as a bitmask of r[p]
+   */
+  public long[] avail;
+
+  /**
+   * times at which professor p works in solution, as a bitmask of z[p]
+   */
+  public long[] busy;
+
+  /**
+   * times at which discipline d is given in solution, as a bitmask of y[d]
+   */
+  public long[] given;
+
+  /**
+   * times at which every room is taken in solution, as a bitmask
+   */
+  public long full;
+
   /**
    * number of professors p allocated to discipline d in solution
    */
@@ -107,6 +154,11 @@ public class PAP implements Evaluator<int[]> {
    */
   public int[] ntp;
 
+  /**
+   * objective function of the solution, kept up to date with the variables
+   */
+  private long objective;
+
   /**
    * The constructor for the PAP class.
    * 
@@ -114,7 +166,18 @@ public class PAP implements Evaluator<int[]> {
    * @throws IOException Necessary for I/O operations.
    */
   public PAP(String filename) throws IOException {
+
     size = readInput(filename);
+
+    if (T > Long.SIZE)
+      throw new IOException(filename + ": at most " + Long.SIZE + " times are supported, got " + T);
+
+    avail = new long[P];
+    for (int p = 0; p < P; p++)
+      for (int t = 0; t < T; t++)
+        if (r[p][t] != 0)
+          avail[p] |= 1L << t;
+
   }
 
   /*
@@ -130,316 +193,513 @@ public class PAP implements Evaluator<int[]> {
   /*
    * (non-Javadoc)
    * 
-   * @see problems.Evaluator#evaluate()
+   * @see problems.LongEvaluator#evaluateAsLong()
    */
   @Override
-  public Double evaluate(Solution<int[]> sol) {
-    setVariables(sol);
-    return sol.cost = evaluatePAP(sol);
+  public long evaluateAsLong(Solution<int[]> sol) {
+    track(sol);
+    long cost = evaluatePAP(sol);
+    sol.cost = cost;
+    return cost;
   }
 
   /**
    * Evaluate PAP objective function, penalizing it if there are non allocated
-   * disciplines or if the solution is infeasible.
+   * disciplines or if the solution is infeasible. The value is kept up to date
+   * with the variables, so it is read in O(1).
    * 
-   * @param sol PAP solution to be evaluated.
+   * @param sol PAP solution to be evaluated, which the variables must describe.
    */
-  public Double evaluatePAP(Solution<int[]> sol) {
-
-    Double _cost = 0.0;
-
-    for (int p = 0; p < P; p++) {
-      for (int d = 0; d < D; d++) {
-
-        // increment cost
-        _cost += a[p][d] * x[p][d];
-
-      }
-    }
-
-    for (int d = 0; d < D; d++) {
+  public long evaluatePAP(Solution<int[]> sol) {
+    return objective;
+  }
 
-      // penalize non allocated disciplines
-      if (w[d] == 0)
-        _cost -= 100;
+  /**
+   * Gives the part of the objective function due to discipline d being non
+   * allocated or infeasible, when it is given at w times.
+   */
+  private long penalty(int d, int w) {
 
-      // penalize infeasible solutions
-      else if (w[d] != h[d])
-        _cost -= pen;
+    // penalize non allocated disciplines
+    if (w == 0)
+      return -100;
 
-    }
+    // penalize infeasible solutions
+    return (w != h[d]) ? -pen : 0;
 
-    return _cost;
+  }
 
+  /**
+   * Checks if the element [p, d, t] is in the tracked solution. A list of
+   * elements is checked by the counts of its pairs, which is exact as long as
+   * each discipline has a single professor.
+   */
+  private boolean contains(int p, int d, int t) {
+    if (tracked instanceof PAPSolution)
+      return ((PAPSolution) tracked).contains(p, d, t);
+    return nx[p][d] > 0 && ny[d][t] > 0 && nz[p][t] > 0;
   }
 
+
   /*
    * (non-Javadoc)
    * 
-   * @see problems.Evaluator#evaluateInsertionCost(java.lang.Object,
+   * @see problems.LongEvaluator#evaluateInsertionCostAsLong(java.lang.Object,
    * solutions.Solution)
    */
   @Override
-  public Double evaluateInsertionCost(int[] elem, Solution<int[]> sol) {
+  public long evaluateInsertionCostAsLong(int[] elem, Solution<int[]> sol) {
 
-    setVariables(sol);
+    sync(sol);
     return evaluateInsertionPAP(elem);
 
   }
 
   /**
-   * Evaluate the insertion of an element [p, d, t] in the current solution.
+   * Evaluate the insertion of an element [p, d, t] in the current solution. The
+   * variation is exact: the avaliation a[p][d] counts if p did not give d yet,
+   * and the penalty of d changes with its number of times.
    * 
    * @param elem The element to enter the solution.
    */
-  public Double evaluateInsertionPAP(int[] elem) {
+  public long evaluateInsertionPAP(int[] elem) {
 
-    Double insCost = 0.0;
-
-    // get professor and discipline
-    int p = elem[0], d = elem[1];
+    // get professor, discipline and time
+    int p = elem[0], d = elem[1], t = elem[2];
 
     // element already in solution
-    if (x[p][d] == 1) {
-      return 0.0;
-    }
-
-    // increment cost; as in a feasible solution a discipline is allocated to at
-    // most one professor, the insertion will always remove the cost penalty
-    // associated to the non allocation of a discipline
-    insCost += a[p][d] + 100;
+    if (contains(p, d, t))
+      return 0;
 
-    // remove feasibility penalty if insertion make solution feasible
-    if (w[d] == h[d] - 1) {
-      insCost += pen;
-    }
-
-    return insCost;
+    return (nx[p][d] == 0 ? a[p][d] : 0) + penalty(d, w[d] + 1) - penalty(d, w[d]);
 
   }
 
   /*
    * (non-Javadoc)
    * 
-   * @see problems.Evaluator#evaluateRemovalCost(java.lang.Object,
+   * @see problems.LongEvaluator#evaluateRemovalCostAsLong(java.lang.Object,
    * solutions.Solution)
    */
   @Override
-  public Double evaluateRemovalCost(int[] elem, Solution<int[]> sol) {
+  public long evaluateRemovalCostAsLong(int[] elem, Solution<int[]> sol) {
 
-    setVariables(sol);
+    sync(sol);
     return evaluateRemovalPAP(elem);
 
   }
 
   /**
-   * Evaluate the removal of an element [p, d, t] in the current solution.
+   * Evaluate the removal of an element [p, d, t] in the current solution, which
+   * is exact as the insertion.
    * 
    * @param elem The element to leave the solution.
    */
-  public Double evaluateRemovalPAP(int[] elem) {
-
-    Double remCost = 0.0;
+  public long evaluateRemovalPAP(int[] elem) {
 
-    // get professor and discipline
-    int p = elem[0], d = elem[1];
+    // get professor, discipline and time
+    int p = elem[0], d = elem[1], t = elem[2];
 
     // element not in solution
-    if (x[p][d] == 0) {
-      return 0.0;
-    }
+    if (!contains(p, d, t))
+      return 0;
 
-    // decrement cost; as in a feasible solution a discipline is allocated to at
-    // most one professor, the removal will always penalize the cost
-    remCost -= a[p][d] + 100;
-
-    // ** penalize infeasibility if the removal makes the solution infeasible
-    if (w[d] == h[d]) {
-      remCost -= pen;
-    }
-
-    return remCost;
+    return (nx[p][d] == 1 ? -a[p][d] : 0) + penalty(d, w[d] - 1) - penalty(d, w[d]);
 
   }
 
   /*
    * (non-Javadoc)
    * 
-   * @see problems.Evaluator#evaluateExchangeCost(java.lang.Object,
+   * @see problems.LongEvaluator#evaluateExchangeCostAsLong(java.lang.Object,
    * java.lang.Object, solutions.Solution)
    */
   @Override
-  public Double evaluateExchangeCost(int[] elemIn, int[] elemOut, Solution<int[]> sol) {
+  public long evaluateExchangeCostAsLong(int[] elemIn, int[] elemOut, Solution<int[]> sol) {
 
-    setVariables(sol);
+    sync(sol);
     return evaluateExchangePAP(elemIn, elemOut);
 
   }
 
   /**
-   * Evaluate the exchange of two elements [p, d, t] in the current solution.
+   * Evaluate the exchange of two elements [p, d, t] in the current solution, as
+   * the removal of elemOut followed by the insertion of elemIn, which is exact
+   * as the insertion.
    * 
    * @param elemIn  The element to enter the solution.
    * @param elemOut The element to leave the solution.
    */
-  public Double evaluateExchangePAP(int[] elemIn, int[] elemOut) {
+  public long evaluateExchangePAP(int[] elemIn, int[] elemOut) {
 
-    // get professors and disciplines
-    int pIn = elemIn[0], dIn = elemIn[1], pOut = elemOut[0], dOut = elemOut[1];
+    // get professors, disciplines and times
+    int pIn = elemIn[0], dIn = elemIn[1], tIn = elemIn[2];
+    int pOut = elemOut[0], dOut = elemOut[1], tOut = elemOut[2];
 
-    // same solutions
-    if (dIn == dOut && pIn == pOut) {
-      return 0.0;
+    // same elements
+    if (pIn == pOut && dIn == dOut && tIn == tOut)
+      return 0;
 
-    }
+    long exCost = 0;
 
-    // elemIn already in solution
-    if (x[pIn][dIn] == 1) {
-      return evaluateRemovalPAP(elemOut);
-    }
+    // removal of elemOut, if it is in solution
+    boolean removed = contains(pOut, dOut, tOut);
+    if (removed)
+      exCost += (nx[pOut][dOut] == 1 ? -a[pOut][dOut] : 0) + penalty(dOut, w[dOut] - 1)
+          - penalty(dOut, w[dOut]);
 
-    // elemOut not in solution
-    if (x[pOut][dOut] == 0) {
-      return evaluateInsertionPAP(elemIn);
+    // insertion of elemIn, over the counts left by the removal
+    if (!contains(pIn, dIn, tIn)) {
+      int wIn = w[dIn] - (removed && dIn == dOut ? 1 : 0);
+      int nxIn = nx[pIn][dIn] - (removed && dIn == dOut && pIn == pOut ? 1 : 0);
+      exCost += (nxIn == 0 ? a[pIn][dIn] : 0) + penalty(dIn, wIn + 1) - penalty(dIn, wIn);
     }
 
-    // avaliation exchange impact
-    Double exCost = (double) (a[pIn][dIn] - a[pOut][dOut]);
+    return exCost;
 
-    // check if disciplines are equal
-    if (dIn != dOut) {
+  }
 
-      // remove feasibility penalty if insertion make solution feasible
-      if (w[dIn] == h[dIn] - 1) {
-        exCost += pen;
-      }
+  /**
+   * Evaluate the reassignment of discipline d, with all its times, from
+   * professor pOut to professor pIn. The times at which d is given do not
+   * change, so only the avaliation of the professor changes.
+   * 
+   * @param d    The discipline.
+   * @param pOut The professor currently giving d.
+   * @param pIn  The professor to give d.
+   */
+  public long evaluateReassignPAP(int d, int pOut, int pIn) {
+    return a[pIn][d] - a[pOut][d];
+  }
+
+  /**
+   * Evaluate moving discipline d from time t to time tIn. The objective function
+   * does not depend on the times, so the cost does not change; the move is
+   * useful to make room for other disciplines and professors.
+   * 
+   * @param d   The discipline.
+   * @param t   A time at which d is given.
+   * @param tIn The time to give d instead.
+   */
+  public long evaluateShiftPAP(int d, int t, int tIn) {
+    return 0;
+  }
+
+  /**
+   * Evaluate allocating the whole discipline d, not allocated in the tracked
+   * solution, to professor p at h[d] times. The discipline stops being
+   * penalized as non allocated and, having all its times, is not penalized as
+   * infeasible.
+   * 
+   * @param p The professor to give d.
+   * @param d The discipline.
+   */
+  public long evaluateMacroInsertionPAP(int p, int d) {
+    return a[p][d] + 100;
+  }
+
+  /**
+   * Evaluate removing the whole discipline d, given by professor p in the
+   * tracked solution, which makes it non allocated.
+   * 
+   * @param p The professor giving d.
+   * @param d The discipline.
+   */
+  public long evaluateMacroRemovalPAP(int p, int d) {
+    return -100 - a[p][d] + (w[d] != h[d] ? pen : 0);
+  }
+
+  /**
+   * Evaluate reallocating the whole discipline d, given by professor pOut in
+   * the tracked solution, to professor pIn at h[d] times, possibly different
+   * from its current ones. pIn may be pOut, which completes the times of d.
+   * 
+   * @param d    The discipline.
+   * @param pOut The professor currently giving d.
+   * @param pIn  The professor to give d.
+   */
+  public long evaluateMacroReassignmentPAP(int d, int pOut, int pIn) {
+    return a[pIn][d] - a[pOut][d] + (w[d] != h[d] ? pen : 0);
+  }
 
-      // penalize infeasibility if the removal makes the solution infeasible
-      if (w[dOut] == h[dOut]) {
-        exCost -= pen;
+  /**
+   * Chooses h[d] times to allocate discipline d to professor p in the tracked
+   * solution, once d leaves its current times. The candidate times are those at
+   * which p is available and some room is free, as a bitwise intersection; the
+   * times at which p already works come first, since they do not count again
+   * towards H, and then the earliest ones.
+   * 
+   * @param p        The professor to give d.
+   * @param d        The discipline.
+   * @param pOut     The professor currently giving d, or -1 if none.
+   * @param slotsOut Bitmask of the times at which d is currently given.
+   * @return Bitmask of the chosen times, or 0 if there are not enough of them.
+   */
+  public long macroSlots(int p, int d, int pOut, long slotsOut) {
+
+    if (h[d] <= 0 || h[d] > T)
+      return 0;
+
+    // d leaving slotsOut frees a room and, if p gives it alone, p at those times
+    long free = avail[p] & ~(full & ~slotsOut);
+    long works = busy[p];
+    if (p == pOut)
+      for (long mask = slotsOut; mask != 0; mask &= mask - 1) {
+        int t = Long.numberOfTrailingZeros(mask);
+        if (nz[p][t] == 1)
+          works &= ~(1L << t);
       }
 
+    long slots = take(free & works, h[d]);
+    int left = h[d] - Long.bitCount(slots);
+    if (left > 0) {
+      if (Long.bitCount(works) + left > H)
+        return 0;
+      slots |= take(free & ~works, left);
     }
 
-    return 0.0;
+    return (Long.bitCount(slots) == h[d]) ? slots : 0;
 
   }
 
   /**
-   * Calculate some sums used to check if an element is feasible.
+   * Builds a feasible solution from elements [p, d, t] given by another source,
+   * such as a previous timetable, which may not be feasible for this instance.
+   * Elements out of the instance are discarded, each discipline keeps only the
+   * professor that gives it at the most times, and its elements are inserted,
+   * discipline by discipline, while they are feasible. A discipline left with
+   * fewer than h[d] times is then completed with other times of its professor,
+   * reallocated to h[d] new times of its professor by {@link #macroSlots}, or
+   * left out, in this order of preference. The repaired solution is evaluated
+   * and becomes the tracked one.
    * 
-   * @param sol The PAP solution to which calculate the sums.
+   * @param elems The elements.
+   * @return The repaired solution.
    */
-  public void accumulate(Solution<int[]> sol) {
+  public PAPSolution repair(List<int[]> elems) {
 
-    setVariables(sol);
+    // times of each pair (p, d)
+    long[][] times = new long[D][P];
+    for (int[] e : elems)
+      if (e[0] >= 0 && e[0] < P && e[1] >= 0 && e[1] < D && e[2] >= 0 && e[2] < T)
+        times[e[1]][e[0]] |= 1L << e[2];
 
-    // instantiate accumulators
-    npd = new int[D];
-    ndt = new int[T];
-    ntd = new int[D];
-    ntp = new int[P];
+    PAPSolution sol = new PAPSolution(D, T);
+    track(sol);
 
+    int[] prof = new int[D];
     for (int d = 0; d < D; d++) {
-      for (int p = 0; p < P; p++) {
-        // check if professor p gives discipline d
-        if (x[p][d] == 1)
-          npd[d]++;
-      }
 
-      for (int t = 0; t < T; t++) {
-        // check if discipline d is given at time t
-        if (y[d][t] == 1) {
-          ntd[d]++;
-          ndt[t]++;
-        }
-      }
+      prof[d] = -1;
+      for (int p = 0; p < P; p++)
+        if (times[d][p] != 0 && (prof[d] < 0 || Long.bitCount(times[d][p]) > Long.bitCount(times[d][prof[d]])))
+          prof[d] = p;
+
+      if (prof[d] >= 0)
+        for (long mask = times[d][prof[d]]; mask != 0; mask &= mask - 1)
+          insertIfFeasible(sol, prof[d], d, Long.numberOfTrailingZeros(mask));
+
     }
 
-    for (int p = 0; p < P; p++) {
-      for (int t = 0; t < T; t++) {
-        // check if professor p works at time t
-        if (z[p][t] == 1)
-          ntp[p]++;
-      }
+    for (int d = 0; d < D; d++) {
+
+      int p = prof[d];
+      if (p < 0 || w[d] == h[d])
+        continue;
+
+      // times at which p already works first, since they do not count towards H
+      long other = ~given[d];
+      for (long mask = other & busy[p]; mask != 0 && w[d] < h[d]; mask &= mask - 1)
+        insertIfFeasible(sol, p, d, Long.numberOfTrailingZeros(mask));
+      for (long mask = other & ~busy[p]; mask != 0 && w[d] < h[d]; mask &= mask - 1)
+        insertIfFeasible(sol, p, d, Long.numberOfTrailingZeros(mask));
+      if (w[d] == h[d])
+        continue;
+
+      long slots = macroSlots(p, d, (w[d] > 0) ? p : -1, given[d]);
+      for (long mask = given[d]; mask != 0; mask &= mask - 1)
+        applyRemoval(new int[] { p, d, Long.numberOfTrailingZeros(mask) }, sol);
+      for (long mask = slots; mask != 0; mask &= mask - 1)
+        applyInsertion(new int[] { p, d, Long.numberOfTrailingZeros(mask) }, sol);
+
+    }
+
+    evaluateAsLong(sol);
+    return sol;
+
+  }
+
+  /**
+   * Inserts the element [p, d, t] into the tracked solution if it is feasible.
+   */
+  private void insertIfFeasible(PAPSolution sol, int p, int d, int t) {
+    if ((feasibleSlots(p, d) & (1L << t)) != 0)
+      applyInsertion(new int[] { p, d, t }, sol);
+  }
+
+  /**
+   * Gives the n lowest bits of a bitmask, or all of them if it has fewer.
+   */
+  private static long take(long mask, int n) {
+    long taken = 0;
+    for (; n > 0 && mask != 0; n--) {
+      long low = mask & -mask;
+      taken |= low;
+      mask ^= low;
     }
+    return taken;
+  }
+
+  /**
+   * Checks if discipline d, given at the times in the bitmask slots, can be
+   * reassigned from professor pOut to professor pIn in the tracked solution,
+   * with a few bitwise operations.
+   * 
+   * @param d     The discipline.
+   * @param slots Bitmask of the times at which d is given.
+   * @param pOut  The professor currently giving d.
+   * @param pIn   The professor to give d.
+   */
+  public boolean isReassignFeasible(int d, long slots, int pOut, int pIn) {
+
+    if (pIn == pOut)
+      return false;
+
+    // pIn must be available at every time of d, and new times count towards H
+    return (slots & ~avail[pIn]) == 0 && Long.bitCount(busy[pIn] | slots) <= H;
 
   }
 
+  /**
+   * Checks if discipline d, given by professor p, can be moved from time t to
+   * time tIn in the tracked solution.
+   * 
+   * @param p   The professor giving d.
+   * @param d   The discipline.
+   * @param t   A time at which d is given.
+   * @param tIn The time to give d instead.
+   */
+  public boolean isShiftFeasible(int p, int d, int t, int tIn) {
+
+    // d must not be given at tIn already, a room must be free at tIn and p
+    // must be available at tIn
+    long in = 1L << tIn;
+    if ((given[d] & in) != 0 || (full & in) != 0 || (avail[p] & in) == 0)
+      return false;
+
+    // t is freed only if d was the only discipline of p at t
+    long out = (nz[p][t] == 1) ? 1L << t : 0;
+    return Long.bitCount((busy[p] & ~out) | in) <= H;
+
+  }
+
+  /**
+   * Calculate some sums used to check if an element is feasible. If the solution
+   * is the tracked one, the sums are already up to date and nothing is done.
+   * Otherwise, the solution becomes the tracked one.
+   * 
+   * @param sol The PAP solution to which calculate the sums.
+   */
+  public void accumulate(Solution<int[]> sol) {
+    sync(sol);
+  }
+
   /**
    * Checks if an element [p,d,t] can enter the solution.
    * 
    * @param elem The element to be checked.
    */
   public Boolean isElemFeasible(int[] elem) {
+    return (feasibleSlots(elem[0], elem[1]) & (1L << elem[2])) != 0;
+  }
 
-    // get professor p, discipline d and time t
-    int p = elem[0], d = elem[1], t = elem[2];
+  /**
+   * Gives the times t at which an element [p,d,t] can enter the tracked
+   * solution, as a bitmask, under the same conditions as
+   * {@link #isElemFeasible}.
+   * 
+   * @param p The professor.
+   * @param d The discipline.
+   */
+  public long feasibleSlots(int p, int d) {
 
-    // if there is other professor giving d, elem is infeasible
+    // if there is other professor giving d, no element is feasible
     if (npd[d] == 1 && x[p][d] == 0)
-      return false;
-
-    // if d is already allocated at h[d] periods, elem is infeasible
-    if (w[d] > 0 && w[d] == h[d] && y[d][t] == 0)
-      return false;
+      return 0;
 
-    // if there are S disciplines allocated at time t, d cannot be allocated at t
-    if (ndt[t] == S && y[d][t] == 0)
-      return false;
+    // professor p can only work at the times it is available, and d can only be
+    // allocated at a time with S disciplines if it is already given then
+    long slots = avail[p] & ~(full & ~given[d]);
 
-    // if professor p cannot work at time t, elem is infeasible
-    if (r[p][t] == 0)
-      return false;
+    // if d is already allocated at h[d] periods, only its times are feasible
+    if (w[d] > 0 && w[d] == h[d])
+      slots &= given[d];
 
-    // if professor p already work at H times, elem is infeasible
-    if (ntp[p] == H && z[p][t] == 0)
-      return false;
+    // if professor p already works at H times, only its times are feasible
+    if (ntp[p] == H)
+      slots &= busy[p];
 
-    return true;
+    return slots;
 
   }
 
   /**
-   * Method to debug if a solution is feasible or not.
+   * Method to debug if a solution is feasible or not. It is checked from the
+   * professor and times of each discipline, without the variables, so the
+   * tracked solution is left as it is.
    * 
    * @param sol The solution to be checked.
    */
   public Boolean isSolFeasible(Solution<int[]> sol) {
 
-    accumulate(sol);
-
-    for (int d = 0; d < D; d++) {
-      for (int t = 0; t < T; t++) {
-
-        // at most S disciplines can be allocated at time t
-        if (ndt[t] > S)
+    int[] prof = new int[D];
+    long[] slots = new long[D];
+    if (sol instanceof PAPSolution) {
+      System.arraycopy(((PAPSolution) sol).prof, 0, prof, 0, D);
+      System.arraycopy(((PAPSolution) sol).slots, 0, slots, 0, D);
+    } else {
+      Arrays.fill(prof, -1);
+      for (int[] elem : sol) {
+
+        // a discipline must be allocated to at most 1 professor
+        if (prof[elem[1]] >= 0 && prof[elem[1]] != elem[0])
           return false;
 
+        prof[elem[1]] = elem[0];
+        slots[elem[1]] |= 1L << elem[2];
+
       }
+    }
 
-      // a discipline must be allocated to at most 1 professor
-      if (npd[d] > 1)
-        return false;
+    int[] rooms = new int[T];
+    long[] works = new long[P];
+    for (int d = 0; d < D; d++) {
+
+      if (prof[d] < 0)
+        continue;
 
       // if allocated, the discipline d requires h[d] times in a week
-      if (npd[d] > 0 && ntd[d] != h[d])
+      if (Long.bitCount(slots[d]) != h[d])
         return false;
 
+      works[prof[d]] |= slots[d];
+      for (long mask = slots[d]; mask != 0; mask &= mask - 1)
+        rooms[Long.numberOfTrailingZeros(mask)]++;
+
     }
 
-    for (int p = 0; p < P; p++) {
-      for (int t = 0; t < T; t++) {
+    // at most S disciplines can be allocated at time t
+    for (int t = 0; t < T; t++)
+      if (rooms[t] > S)
+        return false;
 
-        // a professor p only can work at time t if r[p][t] == 1
-        if (z[p][t] > r[p][t])
-          return false;
+    for (int p = 0; p < P; p++) {
 
-        // a professor p can work in at most H times
-        if (ntp[p] > H)
-          return false;
+      // a professor p only can work at the times it is available, and in at
+      // most H times
+      if ((works[p] & ~avail[p]) != 0 || Long.bitCount(works[p]) > H)
+        return false;
 
-      }
     }
 
     return true;
@@ -447,101 +707,267 @@ public class PAP implements Evaluator<int[]> {
   }
 
   /**
-   * Set the PLI model variables, used to evaluate the solution.
+   * Set the PLI model variables and the accumulators, used to evaluate the
+   * solution. The solution stops being tracked, since the variables no longer
+   * necessarily describe it after it is changed.
    * 
    * @param sol The PAP solution.
    */
   public void setVariables(Solution<int[]> sol) {
 
+    tracked = null;
+
     // reset all
     w = new int[D];
     x = new int[P][D];
     y = new int[D][T];
     z = new int[P][T];
+    nx = new int[P][D];
+    ny = new int[D][T];
+    nz = new int[P][T];
+    npd = new int[D];
+    ndt = new int[T];
+    ntd = new int[D];
+    ntp = new int[P];
+    busy = new long[P];
+    given = new long[D];
+    full = (S == 0) ? ~0L : 0;
+    objective = -100L * D;
+
+    if (sol instanceof PAPSolution) {
 
-    for (int[] elem : sol) {
+      // read the assignment vectors directly, without creating the elements
+      PAPSolution psol = (PAPSolution) sol;
+      for (int d = 0; d < D; d++)
+        for (long mask = psol.slots[d]; mask != 0; mask &= mask - 1)
+          allocate(psol.prof[d], d, Long.numberOfTrailingZeros(mask));
 
-      // get professor p, discipline d and time t
-      int p = elem[0], d = elem[1], t = elem[2];
+    } else {
 
-      // allocate them
-      w[d]++;
+      for (int[] elem : sol)
+        allocate(elem[0], elem[1], elem[2]);
+
+    }
+
+  }
+
+  /**
+   * Rebuild the variables from a solution and keep them up to date while it is
+   * changed through {@link #applyInsertion}, {@link #applyRemoval} and
+   * {@link #applyExchange}. Until then, the delta evaluations over this solution
+   * read the variables in O(1) without rebuilding them. Changing the solution
+   * directly requires calling this method (or {@link #evaluate}) again.
+   * 
+   * @param sol The PAP solution to be tracked.
+   */
+  public void track(Solution<int[]> sol) {
+    setVariables(sol);
+    tracked = sol;
+  }
+
+  /**
+   * Make sure the variables describe the given solution, rebuilding them and
+   * tracking the solution only if it is not the tracked one. Delta evaluations
+   * over the tracked solution only read the variables, so they can be done
+   * concurrently.
+   * 
+   * @param sol The PAP solution.
+   */
+  protected void sync(Solution<int[]> sol) {
+    if (sol != tracked)
+      track(sol);
+  }
+
+  /**
+   * Insert an element [p, d, t] into a solution, updating the variables if the
+   * solution is tracked. The solution cost is not updated.
+   * 
+   * @param elem The element to enter the solution.
+   * @param sol  The PAP solution.
+   */
+  public void applyInsertion(int[] elem, Solution<int[]> sol) {
+    sync(sol);
+    if (sol.add(elem))
+      allocate(elem[0], elem[1], elem[2]);
+    tracked = sol;
+  }
+
+  /**
+   * Remove an element [p, d, t] from a solution, updating the variables if the
+   * solution is tracked. The solution cost is not updated.
+   * 
+   * @param elem The element to leave the solution.
+   * @param sol  The PAP solution.
+   */
+  public void applyRemoval(int[] elem, Solution<int[]> sol) {
+    sync(sol);
+    if (sol.remove(elem))
+      deallocate(elem[0], elem[1], elem[2]);
+    tracked = sol;
+  }
+
+  /**
+   * Exchange two elements [p, d, t] of a solution, updating the variables if the
+   * solution is tracked. The solution cost is not updated.
+   * 
+   * @param elemIn  The element to enter the solution.
+   * @param elemOut The element to leave the solution.
+   * @param sol     The PAP solution.
+   */
+  public void applyExchange(int[] elemIn, int[] elemOut, Solution<int[]> sol) {
+    applyRemoval(elemOut, sol);
+    applyInsertion(elemIn, sol);
+  }
+
+  /**
+   * Account an element [p, d, t] into the variables and accumulators.
+   */
+  private void allocate(int p, int d, int t) {
+
+    objective -= penalty(d, w[d]);
+    w[d]++;
+    objective += penalty(d, w[d]);
+
+    if (nx[p][d]++ == 0) {
       x[p][d] = 1;
+      npd[d]++;
+      objective += a[p][d];
+    }
+
+    if (ny[d][t]++ == 0) {
       y[d][t] = 1;
+      given[d] |= 1L << t;
+      ntd[d]++;
+      if (++ndt[t] >= S)
+        full |= 1L << t;
+    }
+
+    if (nz[p][t]++ == 0) {
       z[p][t] = 1;
+      busy[p] |= 1L << t;
+      ntp[p]++;
+    }
+
+  }
+
+  /**
+   * Discount an element [p, d, t] from the variables and accumulators.
+   */
+  private void deallocate(int p, int d, int t) {
+
+    objective -= penalty(d, w[d]);
+    w[d]--;
+    objective += penalty(d, w[d]);
+
+    if (--nx[p][d] == 0) {
+      x[p][d] = 0;
+      npd[d]--;
+      objective -= a[p][d];
+    }
+
+    if (--ny[d][t] == 0) {
+      y[d][t] = 0;
+      given[d] &= ~(1L << t);
+      ntd[d]--;
+      if (--ndt[t] < S)
+        full &= ~(1L << t);
+    }
 
+    if (--nz[p][t] == 0) {
+      z[p][t] = 0;
+      busy[p] &= ~(1L << t);
+      ntp[p]--;
     }
 
   }
 
   /**
    * Responsible for setting the problem parameters by reading the necessary input
-   * from an external file.
+   * from an external file, or from its binary cache if {@link #binaryCache} is
+   * set.
    * 
    * @param filename Name of the file containing the input.
    * @return The dimension of the domain.
-   * @throws IOException Necessary for I/O operations.
+   * @throws IOException Necessary for I/O operations, or if the file is
+   *                     malformed.
    */
   protected Integer readInput(String filename) throws IOException {
 
-    Reader fileInst = new BufferedReader(new FileReader(filename));
-    StreamTokenizer stok = new StreamTokenizer(fileInst);
+    if (binaryCache) {
 
-    // Read P
-    for (int i = 0; i < 2; i++)
-      stok.nextToken();
-    P = (int) stok.nval;
+      String cacheFile = PAPBinary.cacheName(filename);
+      BasicFileAttributes source = PAPBinary.source(filename);
 
-    // Read D
-    for (int i = 0; i < 2; i++)
-      stok.nextToken();
-    D = (int) stok.nval;
+      boolean cached;
+      try {
+        cached = PAPBinary.read(this, cacheFile, source);
+      } catch (IOException e) {
+        cached = false;
+      }
+
+      // the cache is best-effort, so failing to write it only costs a parse
+      // on the next load
+      if (!cached) {
+        parseInput(filename);
+        try {
+          PAPBinary.write(this, cacheFile, source);
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+
+    } else {
+      parseInput(filename);
+    }
+
+    return P * D * T;
 
-    // Read T
-    for (int i = 0; i < 2; i++)
-      stok.nextToken();
-    T = (int) stok.nval;
+  }
+
+  /**
+   * Sets the problem parameters by parsing an instance file, which is
+   * memory-mapped and parsed directly from its bytes.
+   * 
+   * @param filename Name of the file containing the input.
+   * @throws IOException Necessary for I/O operations, or if the file is
+   *                     malformed.
+   */
+  private void parseInput(String filename) throws IOException {
 
-    // Read S
-    for (int i = 0; i < 2; i++)
-      stok.nextToken();
-    S = (int) stok.nval;
+    PAPParser parser = new PAPParser(filename);
 
-    // Read H
-    for (int i = 0; i < 2; i++)
-      stok.nextToken();
-    H = (int) stok.nval;
+    // Read P, D, T, S and H
+    P = parser.header("P");
+    D = parser.header("D");
+    T = parser.header("T");
+    S = parser.header("S");
+    H = parser.header("H");
 
     // Read h_d
     h = new int[D];
-    stok.nextToken();
+    parser.label("hd");
     for (int d = 0; d < D; d++) {
-      stok.nextToken();
-      h[d] = (int) stok.nval;
+      h[d] = parser.nextInt();
     }
 
     // Read a_pd
     a = new int[P][D];
-    stok.nextToken();
+    parser.label("apd");
     for (int p = 0; p < P; p++) {
       for (int d = 0; d < D; d++) {
-        stok.nextToken();
-        a[p][d] = (int) stok.nval;
+        a[p][d] = parser.nextInt();
       }
     }
 
     // Read r_pt
     r = new int[P][T];
-    stok.nextToken();
+    parser.label("rpt");
     for (int p = 0; p < P; p++) {
       for (int t = 0; t < T; t++) {
-        stok.nextToken();
-        r[p][t] = (int) stok.nval;
+        r[p][t] = parser.nextInt();
       }
     }
 
-    return P * D * T;
-
   }
 
 }
@@ -0,0 +1,195 @@
+package problems.pap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Binary cache of PAP instances, stored next to the instance file. It holds,
+ * in little-endian order, a header with the format version, the size and the
+ * modification time of the source file as longs and P, D, T, S, H as ints,
+ * followed by h, a and r as ints. The source file is only read when the cache
+ * is missing or stale, so a change which keeps its size and modification time
+ * is not seen. The a matrix is
+ * stored either dense or, when most professors cannot give most disciplines,
+ * as a count of nonzero entries followed by [p, d, a_pd] triples. Loading maps
+ * the file and copies the arrays in bulk, without parsing.
+ *
+ * @author brichau, einnarelli, rmeirelles
+ */
+class PAPBinary {
+
+    /**
+     * "PAPB" as a little-endian int
+     */
+    private static final int magic = 0x42504150;
+
+    private static final int version = 2;
+
+    private static final int dense = 0, sparse = 1;
+
+    /**
+     * Gives the name of the binary cache of an instance file.
+     */
+    static String cacheName(String filename) {
+        return filename + ".bin";
+    }
+
+    /**
+     * Reads the attributes of a file which invalidate its cache when the file
+     * changes.
+     */
+    static BasicFileAttributes source(String filename) throws IOException {
+        return Files.readAttributes(Paths.get(filename), BasicFileAttributes.class);
+    }
+
+    /**
+     * Loads the instance parameters from a cache file into a PAP.
+     *
+     * @param pap       The PAP whose parameters are set.
+     * @param cacheFile The cache file.
+     * @param source    Attributes of the source file.
+     * @return false, leaving the PAP unchanged, if the cache does not exist, is
+     *         malformed or was written from another version of the source file.
+     * @throws IOException Necessary for I/O operations.
+     */
+    static boolean read(PAP pap, String cacheFile, BasicFileAttributes source) throws IOException {
+
+        Path path = Paths.get(cacheFile);
+        if (!Files.isRegularFile(path))
+            return false;
+
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.remaining() < 48 || buf.getInt() != magic || buf.getInt() != version
+                || buf.getLong() != source.size() || buf.getLong() != source.lastModifiedTime().toMillis())
+            return false;
+        IntBuffer in = buf.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+        int P = in.get(), D = in.get(), T = in.get(), S = in.get(), H = in.get(), aFormat = in.get();
+        if (P < 0 || D < 0 || T < 0 || (long) D + (long) P * T > in.remaining())
+            return false;
+
+        int[] h = new int[D];
+        in.get(h);
+
+        int[][] a = new int[P][D];
+        if (aFormat == dense) {
+            if ((long) P * D > in.remaining())
+                return false;
+            for (int p = 0; p < P; p++)
+                in.get(a[p]);
+        } else if (aFormat == sparse) {
+            int nz = in.get();
+            if (nz < 0 || 3L * nz > in.remaining())
+                return false;
+            for (int i = 0; i < nz; i++) {
+                int p = in.get(), d = in.get();
+                if (p < 0 || p >= P || d < 0 || d >= D)
+                    return false;
+                a[p][d] = in.get();
+            }
+        } else {
+            return false;
+        }
+
+        if ((long) P * T != in.remaining())
+            return false;
+        int[][] r = new int[P][T];
+        for (int p = 0; p < P; p++)
+            in.get(r[p]);
+
+        pap.P = P;
+        pap.D = D;
+        pap.T = T;
+        pap.S = S;
+        pap.H = H;
+        pap.h = h;
+        pap.a = a;
+        pap.r = r;
+
+        return true;
+
+    }
+
+    /**
+     * Writes the instance parameters of a PAP to a cache file. The file is
+     * written under a temporary name and then moved, so concurrent readers never
+     * see it partially written.
+     *
+     * @param pap       The PAP whose parameters are written.
+     * @param cacheFile The cache file.
+     * @param source    Attributes of the source file.
+     * @throws IOException Necessary for I/O operations.
+     */
+    static void write(PAP pap, String cacheFile, BasicFileAttributes source) throws IOException {
+
+        int P = pap.P, D = pap.D, T = pap.T;
+
+        int nz = 0;
+        for (int p = 0; p < P; p++)
+            for (int d = 0; d < D; d++)
+                if (pap.a[p][d] != 0)
+                    nz++;
+        boolean useSparse = 3L * nz < (long) P * D;
+
+        long ints = 12 + D + (useSparse ? 1 + 3L * nz : (long) P * D) + (long) P * T;
+        ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(4 * ints)).order(ByteOrder.LITTLE_ENDIAN);
+
+        buf.putInt(magic).putInt(version).putLong(source.size()).putLong(source.lastModifiedTime().toMillis());
+        buf.putInt(P).putInt(D).putInt(T).putInt(pap.S).putInt(pap.H);
+        buf.putInt(useSparse ? sparse : dense);
+
+        for (int d = 0; d < D; d++)
+            buf.putInt(pap.h[d]);
+
+        if (useSparse) {
+            buf.putInt(nz);
+            for (int p = 0; p < P; p++)
+                for (int d = 0; d < D; d++)
+                    if (pap.a[p][d] != 0)
+                        buf.putInt(p).putInt(d).putInt(pap.a[p][d]);
+        } else {
+            for (int p = 0; p < P; p++)
+                for (int d = 0; d < D; d++)
+                    buf.putInt(pap.a[p][d]);
+        }
+
+        for (int p = 0; p < P; p++)
+            for (int t = 0; t < T; t++)
+                buf.putInt(pap.r[p][t]);
+
+        buf.flip();
+
+        Path path = Paths.get(cacheFile).toAbsolutePath();
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining())
+                    channel.write(buf);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+    }
+
+}
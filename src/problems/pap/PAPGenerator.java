@@ -0,0 +1,116 @@
+package problems.pap;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generator of synthetic PAP instances in the format described in
+ * instances/README.md. The defaults follow the statistics of the shipped
+ * instances: h_d uniform in [1, H], a fraction of about 0.25 of the pairs
+ * (p, d) with a_pd uniform in [50, 100] and the others zero, and each r_pt equal
+ * to 1 with probability 0.5. Every discipline has at least one professor able
+ * to give it.
+ *
+ * @author brichau, einnarelli, rmeirelles
+ */
+public class PAPGenerator {
+
+    /**
+     * default fraction of pairs (p, d) with a_pd > 0
+     */
+    public static final double aDensity = 0.25;
+
+    /**
+     * default fraction of pairs (p, t) with r_pt = 1
+     */
+    public static final double rDensity = 0.5;
+
+    /**
+     * Writes a random PAP instance to a file.
+     *
+     * @param filename Name of the file to be written.
+     * @param P        Number of professors.
+     * @param D        Number of disciplines.
+     * @param T        Number of times.
+     * @param S        Number of rooms.
+     * @param H        Maximum number of times of a professor and of a
+     *                 discipline.
+     * @param aDensity Fraction of pairs (p, d) with a_pd > 0.
+     * @param rDensity Fraction of pairs (p, t) with r_pt = 1.
+     * @param seed     Seed of the random number generator.
+     * @throws IOException Necessary for I/O operations.
+     */
+    public static void generate(String filename, int P, int D, int T, int S, int H, double aDensity,
+            double rDensity, long seed) throws IOException {
+
+        if (P <= 0 || D <= 0 || T <= 0 || S <= 0 || H <= 0)
+            throw new IllegalArgumentException("P, D, T, S and H must be positive");
+
+        Random rng = new Random(seed);
+
+        try (Writer out = new BufferedWriter(new FileWriter(filename))) {
+
+            out.write("P " + P + "\nD " + D + "\nT " + T + "\nS " + S + "\nH " + H + "\n");
+
+            out.write("hd\n");
+            for (int d = 0; d < D; d++)
+                out.write((1 + rng.nextInt(H)) + "\n");
+
+            // choose the professors of each discipline, at least one of them
+            int[][] a = new int[P][D];
+            for (int d = 0; d < D; d++) {
+                for (int p = 0; p < P; p++)
+                    if (rng.nextDouble() < aDensity)
+                        a[p][d] = 50 + rng.nextInt(51);
+                a[rng.nextInt(P)][d] = 50 + rng.nextInt(51);
+            }
+
+            out.write("apd\n");
+            for (int p = 0; p < P; p++)
+                writeRow(out, a[p]);
+
+            out.write("rpt\n");
+            int[] r = new int[T];
+            for (int p = 0; p < P; p++) {
+                for (int t = 0; t < T; t++)
+                    r[t] = (rng.nextDouble() < rDensity) ? 1 : 0;
+                writeRow(out, r);
+            }
+
+        }
+
+    }
+
+    private static void writeRow(Writer out, int[] row) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < row.length; i++)
+            sb.append(i == 0 ? "" : "\t").append(row[i]);
+        out.write(sb.append('\n').toString());
+    }
+
+    /**
+     * Generates an instance from the command line: filename P D T S H
+     * [aDensity rDensity seed].
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 6 && args.length != 9) {
+            System.err.println("usage: PAPGenerator filename P D T S H [aDensity rDensity seed]");
+            System.exit(1);
+        }
+
+        int P = Integer.parseInt(args[1]), D = Integer.parseInt(args[2]), T = Integer.parseInt(args[3]),
+                S = Integer.parseInt(args[4]), H = Integer.parseInt(args[5]);
+
+        if (args.length == 9)
+            generate(args[0], P, D, T, S, H, Double.parseDouble(args[6]), Double.parseDouble(args[7]),
+                    Long.parseLong(args[8]));
+        else
+            generate(args[0], P, D, T, S, H, aDensity, rDensity, 0);
+
+    }
+
+}
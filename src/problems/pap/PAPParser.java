@@ -0,0 +1,162 @@
+package problems.pap;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parser of PAP instance files, in the format described in
+ * instances/README.md. The file is memory-mapped and the integers are parsed
+ * directly from its bytes, without going through a Reader.
+ *
+ * @author brichau, einnarelli, rmeirelles
+ */
+class PAPParser {
+
+    /**
+     * name of the file, used in error messages
+     */
+    private final String filename;
+
+    /**
+     * contents of the file
+     */
+    private final MappedByteBuffer buf;
+
+    /**
+     * current line, used in error messages
+     */
+    private int line = 1;
+
+    /**
+     * Maps a file to be parsed.
+     *
+     * @param filename Name of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    PAPParser(String filename) throws IOException {
+
+        this.filename = filename;
+        Path path = Paths.get(filename);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(filename + ": file too large to be mapped");
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+    }
+
+    /**
+     * Reads a header line with the given label followed by its value, such as
+     * "P 50".
+     *
+     * @param label The expected label.
+     * @return The value.
+     * @throws IOException If the next token is not the label or the value is not
+     *                     a non-negative integer.
+     */
+    int header(String label) throws IOException {
+        label(label);
+        int value = nextInt();
+        if (value < 0)
+            throw error("expected a non-negative value for " + label + ", found " + value);
+        return value;
+    }
+
+    /**
+     * Reads a label, such as "hd", that starts a section of the file.
+     *
+     * @param label The expected label.
+     * @throws IOException If the next token is not the label.
+     */
+    void label(String label) throws IOException {
+
+        skipSpaces();
+        int start = buf.position();
+
+        while (buf.hasRemaining() && !isSpace(buf.get(buf.position())))
+            buf.get();
+
+        int len = buf.position() - start;
+        boolean match = len == label.length();
+        for (int i = 0; match && i < len; i++)
+            match = buf.get(start + i) == label.charAt(i);
+
+        if (!match)
+            throw error("expected '" + label + "', found " + token(start, len));
+
+    }
+
+    /**
+     * Reads an integer.
+     *
+     * @return The integer.
+     * @throws IOException If the next token is not an integer.
+     */
+    int nextInt() throws IOException {
+
+        skipSpaces();
+        int start = buf.position();
+
+        boolean negative = buf.hasRemaining() && buf.get(start) == '-';
+        if (negative)
+            buf.get();
+
+        long value = 0;
+        int digits = 0;
+        while (buf.hasRemaining()) {
+            byte b = buf.get(buf.position());
+            if (b < '0' || b > '9')
+                break;
+            value = 10 * value + (b - '0');
+            if (value > Integer.MAX_VALUE)
+                throw error("integer out of range");
+            buf.get();
+            digits++;
+        }
+
+        if (digits == 0 || (buf.hasRemaining() && !isSpace(buf.get(buf.position())))) {
+            while (buf.hasRemaining() && !isSpace(buf.get(buf.position())))
+                buf.get();
+            throw error("expected an integer, found " + token(start, buf.position() - start));
+        }
+
+        return (int) (negative ? -value : value);
+
+    }
+
+    /**
+     * Skips the spaces, tabs and line breaks before the next token.
+     */
+    private void skipSpaces() {
+        while (buf.hasRemaining() && isSpace(buf.get(buf.position()))) {
+            if (buf.get() == '\n')
+                line++;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Describes the token at the given position for error messages.
+     */
+    private String token(int start, int len) {
+        if (len == 0)
+            return "end of file";
+        StringBuilder sb = new StringBuilder("'");
+        for (int i = 0; i < Math.min(len, 20); i++)
+            sb.append((char) buf.get(start + i));
+        return sb.append(len > 20 ? "...'" : "'").toString();
+    }
+
+    private IOException error(String msg) {
+        return new IOException(filename + ":" + line + ": " + msg);
+    }
+
+}
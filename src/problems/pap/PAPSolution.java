@@ -0,0 +1,573 @@
+package problems.pap;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import solutions.Solution;
+
+/**
+ * Compact solution of the Professor Allocation Problem. Instead of a list of
+ * [p, d, t] triples, it stores the professor allocated to each discipline and
+ * the set of times at which each discipline is given as a bitmask, which is
+ * possible because a discipline is given by at most one professor. The
+ * solution is still seen as a list of [p, d, t] triples, ordered by discipline
+ * and time, whose arrays are created on demand and compared by value. The
+ * elements inserted at a position go to their place in that order instead.
+ *
+ * @author brichau, einnarelli, rmeirelles
+ */
+@SuppressWarnings("serial")
+public class PAPSolution extends Solution<int[]> {
+
+    /**
+     * professor allocated to discipline d, or -1 if d is not allocated
+     */
+    public final int[] prof;
+
+    /**
+     * bitmask of the times t at which discipline d is given
+     */
+    public final long[] slots;
+
+    /**
+     * number of [p, d, t] elements in the solution
+     */
+    private int n;
+
+    /**
+     * index of the first element of each discipline, followed by the number of
+     * elements and by the modCount at which it was built, or null
+     */
+    private transient volatile int[] first;
+
+    /**
+     * Creates an empty solution.
+     *
+     * @param D Number of disciplines.
+     * @param T Number of times, which must fit in a bitmask.
+     */
+    public PAPSolution(int D, int T) {
+        super();
+        if (T > Long.SIZE)
+            throw new IllegalArgumentException("at most " + Long.SIZE + " times are supported, got " + T);
+        prof = new int[D];
+        slots = new long[D];
+        Arrays.fill(prof, -1);
+    }
+
+    /**
+     * Creates a copy of a solution.
+     *
+     * @param sol The solution to be copied.
+     */
+    public PAPSolution(PAPSolution sol) {
+        super();
+        prof = sol.prof.clone();
+        slots = sol.slots.clone();
+        n = sol.n;
+        cost = sol.cost;
+    }
+
+    @Override
+    public Solution<int[]> copy() {
+        return new PAPSolution(this);
+    }
+
+    /**
+     * Checks if the element [p, d, t] is in the solution.
+     */
+    public boolean contains(int p, int d, int t) {
+        return prof[d] == p && (slots[d] & (1L << t)) != 0;
+    }
+
+    /**
+     * Inserts the element [p, d, t] into the solution.
+     *
+     * @return true if the element was not already in the solution.
+     * @throws IllegalArgumentException if d is given by another professor.
+     */
+    public boolean add(int p, int d, int t) {
+
+        if (prof[d] >= 0 && prof[d] != p)
+            throw new IllegalArgumentException(
+                    "discipline " + d + " is already given by professor " + prof[d] + ", not " + p);
+
+        long bit = 1L << t;
+        if ((slots[d] & bit) != 0)
+            return false;
+
+        prof[d] = p;
+        slots[d] |= bit;
+        n++;
+        modCount++;
+        return true;
+
+    }
+
+    /**
+     * Removes the element [p, d, t] from the solution.
+     *
+     * @return true if the element was in the solution.
+     */
+    public boolean remove(int p, int d, int t) {
+
+        if (!contains(p, d, t))
+            return false;
+
+        slots[d] &= ~(1L << t);
+        if (slots[d] == 0)
+            prof[d] = -1;
+        n--;
+        modCount++;
+        return true;
+
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int[] e = asElem(o);
+        return e != null && contains(e[0], e[1], e[2]);
+    }
+
+    @Override
+    public boolean add(int[] elem) {
+        return add(elem[0], elem[1], elem[2]);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int[] e = asElem(o);
+        return e != null && remove(e[0], e[1], e[2]);
+    }
+
+    @Override
+    public int[] remove(int index) {
+        int[] e = get(index);
+        remove(e[0], e[1], e[2]);
+        return e;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends int[]> c) {
+        boolean changed = false;
+        for (int[] e : c)
+            changed |= add(e);
+        return changed;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean changed = false;
+        for (Object o : c)
+            changed |= remove(o);
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(e -> !c.contains(e));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super int[]> filter) {
+        boolean changed = false;
+        for (Iterator<int[]> it = iterator(); it.hasNext();) {
+            if (filter.test(it.next())) {
+                it.remove();
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(prof, -1);
+        Arrays.fill(slots, 0L);
+        n = 0;
+        modCount++;
+    }
+
+    @Override
+    public int[] get(int index) {
+
+        if (index < 0 || index >= n)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + n);
+
+        // the last discipline whose first element is at or before index
+        int[] first = first();
+        int lo = 0, hi = prof.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (first[mid] <= index)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+
+        long mask = slots[lo];
+        for (int i = first[lo]; i < index; i++)
+            mask &= mask - 1;
+        return new int[] { prof[lo], lo, Long.numberOfTrailingZeros(mask) };
+
+    }
+
+    /**
+     * Gives the index of the first element of each discipline, rebuilding it in
+     * O(D) if the solution changed since it was last built.
+     */
+    private int[] first() {
+        int D = prof.length;
+        int[] first = this.first;
+        if (first == null || first[D + 1] != modCount) {
+            first = new int[D + 2];
+            for (int d = 0; d < D; d++)
+                first[d + 1] = first[d] + Long.bitCount(slots[d]);
+            first[D + 1] = modCount;
+            this.first = first;
+        }
+        return first;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        int[] e = asElem(o);
+        if (e == null || !contains(e[0], e[1], e[2]))
+            return -1;
+        return first()[e[1]] + Long.bitCount(slots[e[1]] & ((1L << e[2]) - 1));
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public Iterator<int[]> iterator() {
+
+        return new Iterator<int[]>() {
+
+            int d = -1;
+            long mask = 0;
+            int[] last;
+
+            @Override
+            public boolean hasNext() {
+                while (mask == 0 && d + 1 < slots.length)
+                    mask = slots[++d];
+                return mask != 0;
+            }
+
+            @Override
+            public int[] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int t = Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                return last = new int[] { prof[d], d, t };
+            }
+
+            @Override
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                PAPSolution.this.remove(last[0], last[1], last[2]);
+                last = null;
+            }
+
+        };
+
+    }
+
+    @Override
+    public Spliterator<int[]> spliterator() {
+        return Spliterators.spliterator(iterator(), n, Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+
+    @Override
+    public void forEach(Consumer<? super int[]> action) {
+        for (int d = 0; d < slots.length; d++)
+            for (long mask = slots[d]; mask != 0; mask &= mask - 1)
+                action.accept(new int[] { prof[d], d, Long.numberOfTrailingZeros(mask) });
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] arr = new Object[n];
+        int i = 0;
+        for (int[] e : this)
+            arr[i++] = e;
+        return arr;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A> A[] toArray(A[] a) {
+        Object[] arr = toArray();
+        if (a.length < n)
+            return (A[]) Arrays.copyOf(arr, n, a.getClass());
+        System.arraycopy(arr, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    @Override
+    public Object clone() {
+        return new PAPSolution(this);
+    }
+
+    /**
+     * Compares the professor and times of each discipline. Since the elements
+     * are arrays, which a list of elements compares by identity, a PAPSolution
+     * is only equal to another PAPSolution, as its hash code does.
+     */
+    @Override
+    public boolean equals(Object o) {
+
+        if (o == this)
+            return true;
+        if (!(o instanceof PAPSolution))
+            return false;
+
+        PAPSolution other = (PAPSolution) o;
+        return Arrays.equals(prof, other.prof) && Arrays.equals(slots, other.slots);
+
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(prof) + Arrays.hashCode(slots);
+    }
+
+    /**
+     * Inserts an element at its position in the order by discipline and time,
+     * which may not be index.
+     *
+     * @throws IllegalArgumentException if the discipline is given by another
+     *                                  professor.
+     */
+    @Override
+    public void add(int index, int[] element) {
+        if (index < 0 || index > n)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + n);
+        add(element);
+    }
+
+    /**
+     * Inserts the elements at their positions in the order by discipline and
+     * time, which may not start at index.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends int[]> c) {
+        if (index < 0 || index > n)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + n);
+        return addAll(c);
+    }
+
+    /**
+     * Replaces the element at index by another one, which goes to its position
+     * in the order by discipline and time. If the new element is already in the
+     * solution, the old one is just removed, and if it cannot be inserted, the
+     * solution is left as it was.
+     *
+     * @throws IllegalArgumentException if the discipline of the new element is
+     *                                  given by another professor.
+     */
+    @Override
+    public int[] set(int index, int[] element) {
+        int[] old = get(index);
+        remove(old[0], old[1], old[2]);
+        try {
+            add(element);
+        } catch (RuntimeException e) {
+            add(old[0], old[1], old[2]);
+            throw e;
+        }
+        return old;
+    }
+
+    /**
+     * Replaces every element by the result of the operator, as {@link #set},
+     * and reorders them by discipline and time. If any of the results cannot be
+     * inserted, the solution is left as it was.
+     */
+    @Override
+    public void replaceAll(UnaryOperator<int[]> operator) {
+        PAPSolution sol = new PAPSolution(prof.length, 0);
+        for (int[] e : this)
+            sol.add(operator.apply(e));
+        System.arraycopy(sol.prof, 0, prof, 0, prof.length);
+        System.arraycopy(sol.slots, 0, slots, 0, slots.length);
+        n = sol.n;
+        modCount++;
+    }
+
+    /**
+     * The elements are always ordered by discipline and time, so the solution
+     * is left as it is.
+     */
+    @Override
+    public void sort(Comparator<? super int[]> c) {
+    }
+
+    @Override
+    public ListIterator<int[]> listIterator() {
+        return new ListItr(0);
+    }
+
+    @Override
+    public ListIterator<int[]> listIterator(int index) {
+        if (index < 0 || index > n)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + n);
+        return new ListItr(index);
+    }
+
+    /**
+     * Gives a read-only view of the elements from fromIndex to toIndex. The
+     * view must not be used after the solution is changed.
+     */
+    @Override
+    public List<int[]> subList(int fromIndex, int toIndex) {
+
+        if (fromIndex < 0 || toIndex > n || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex " + fromIndex + ", toIndex " + toIndex + ", size " + n);
+
+        int expectedModCount = modCount;
+        return new AbstractList<int[]>() {
+
+            @Override
+            public int[] get(int index) {
+                if (PAPSolution.this.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if (index < 0 || index >= toIndex - fromIndex)
+                    throw new IndexOutOfBoundsException(
+                            "Index " + index + " out of bounds for length " + (toIndex - fromIndex));
+                return PAPSolution.this.get(fromIndex + index);
+            }
+
+            @Override
+            public int size() {
+                if (PAPSolution.this.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return toIndex - fromIndex;
+            }
+
+        };
+
+    }
+
+    /**
+     * List iterator over the elements in order, which can remove them but not
+     * set or add them, since that would break the order.
+     */
+    private class ListItr implements ListIterator<int[]> {
+
+        int cursor, last = -1, expectedModCount = modCount;
+
+        ListItr(int index) {
+            cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < n;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public int[] next() {
+            checkForComodification();
+            if (cursor >= n)
+                throw new NoSuchElementException();
+            last = cursor;
+            return get(cursor++);
+        }
+
+        @Override
+        public int[] previous() {
+            checkForComodification();
+            if (cursor <= 0)
+                throw new NoSuchElementException();
+            last = --cursor;
+            return get(cursor);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+            PAPSolution.this.remove(last);
+            cursor = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(int[] e) {
+            throw new UnsupportedOperationException("the elements are ordered by discipline and time");
+        }
+
+        @Override
+        public void add(int[] e) {
+            throw new UnsupportedOperationException("the elements are ordered by discipline and time");
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+    }
+
+    /**
+     * Casts an object to a [p, d, t] element within the solution bounds, or
+     * returns null if it is not one.
+     */
+    private int[] asElem(Object o) {
+        if (!(o instanceof int[]))
+            return null;
+        int[] e = (int[]) o;
+        if (e.length != 3 || e[1] < 0 || e[1] >= prof.length || e[2] < 0 || e[2] >= Long.SIZE)
+            return null;
+        return e;
+    }
+
+}
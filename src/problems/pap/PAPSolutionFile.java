@@ -0,0 +1,181 @@
+package problems.pap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import solutions.Solution;
+
+/**
+ * Reader and writer of PAP solutions given by other sources, such as a previous
+ * timetable or the PLI model. A solution file is either a list of elements
+ * [p, d, t], one per line, or the variables x, y and z of the model as CSV,
+ * each one in a section starting with a line holding its name:
+ *
+ * <pre>
+ * x        P rows of D values, x_pd = 1 if p gives d
+ * y        D rows of T values, y_dt = 1 if d is given at t, or D values y_d
+ * z        P rows of T values, z_pt = 1 if p works at t
+ * </pre>
+ *
+ * Values may be separated by commas, semicolons or spaces, values of at least
+ * 0.5 count as 1, and lines starting with # are ignored. When y has no times,
+ * as in the PLI model, discipline d of professor p is given at the times of p
+ * in z. The elements read may be out of the instance or infeasible, so they
+ * are meant to go through {@link PAP#repair(List)}.
+ *
+ * @author brichau, einnarelli, rmeirelles
+ */
+public class PAPSolutionFile {
+
+    /**
+     * Reads the elements [p, d, t] of a solution file.
+     *
+     * @param filename Name of the solution file.
+     * @param pap      The instance.
+     * @return The elements read.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    public static List<int[]> read(String filename, PAP pap) throws IOException {
+
+        List<String[]> lines = new ArrayList<String[]>();
+        List<Integer> numbers = new ArrayList<Integer>();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(filename))) {
+            int n = 0;
+            for (String line; (line = in.readLine()) != null;) {
+                n++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                lines.add(line.split("[\\s,;()\\[\\]]+"));
+                numbers.add(n);
+            }
+        }
+
+        if (!lines.isEmpty() && isSection(lines.get(0)))
+            return readMatrices(filename, lines, numbers, pap);
+
+        // [p, d, t] triples, possibly after a header
+        List<int[]> elems = new ArrayList<int[]>();
+        for (int i = 0; i < lines.size(); i++) {
+            String[] tokens = strip(lines.get(i));
+            if (i == 0 && tokens.length > 0 && !tokens[0].matches("-?\\d+"))
+                continue;
+            if (tokens.length != 3)
+                throw error(filename, numbers.get(i), "expected p d t");
+            int[] e = new int[3];
+            for (int k = 0; k < 3; k++)
+                e[k] = parseInt(filename, numbers.get(i), tokens[k]);
+            elems.add(e);
+        }
+
+        return elems;
+
+    }
+
+    /**
+     * Reads the sections x, y and z of a solution file.
+     */
+    private static List<int[]> readMatrices(String filename, List<String[]> lines, List<Integer> numbers, PAP pap)
+            throws IOException {
+
+        int[][] x = new int[pap.P][pap.D], y = new int[pap.D][pap.T], z = new int[pap.P][pap.T];
+        boolean yTimes = false;
+
+        int[][] matrix = null;
+        int row = 0;
+        for (int i = 0; i < lines.size(); i++) {
+
+            String[] tokens = strip(lines.get(i));
+
+            if (isSection(tokens)) {
+                matrix = tokens[0].equalsIgnoreCase("x") ? x : tokens[0].equalsIgnoreCase("y") ? y : z;
+                row = 0;
+                continue;
+            }
+
+            // y as the D values y_d has no times, as a single row or a column
+            if (matrix == y && (tokens.length == 1 || (row == 0 && tokens.length == pap.D && pap.D != pap.T)))
+                continue;
+            if (matrix == y)
+                yTimes = true;
+
+            for (int j = 0; j < tokens.length; j++) {
+                double v = parseDouble(filename, numbers.get(i), tokens[j]);
+                if (row < matrix.length && j < matrix[row].length)
+                    matrix[row][j] = (v >= 0.5) ? 1 : 0;
+            }
+            row++;
+
+        }
+
+        List<int[]> elems = new ArrayList<int[]>();
+        for (int p = 0; p < pap.P; p++)
+            for (int d = 0; d < pap.D; d++)
+                if (x[p][d] == 1)
+                    for (int t = 0; t < pap.T; t++)
+                        if ((yTimes ? y[d][t] : z[p][t]) == 1)
+                            elems.add(new int[] { p, d, t });
+
+        return elems;
+
+    }
+
+    /**
+     * Writes the elements [p, d, t] of a solution, one per line, in the format
+     * read by {@link #read(String, PAP)}.
+     *
+     * @param filename Name of the solution file, which is overwritten.
+     * @param sol      The solution.
+     * @throws IOException Necessary for I/O operations.
+     */
+    public static void write(String filename, Solution<int[]> sol) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Paths.get(filename))) {
+            out.write("# p d t, cost " + sol.cost + "\n");
+            for (int[] e : sol)
+                out.write(e[0] + " " + e[1] + " " + e[2] + "\n");
+        }
+    }
+
+    private static boolean isSection(String[] tokens) {
+        tokens = strip(tokens);
+        return tokens.length == 1 && tokens[0].matches("[xyzXYZ]");
+    }
+
+    /**
+     * Removes the empty token left by a separator at the start of a line.
+     */
+    private static String[] strip(String[] tokens) {
+        if (tokens.length > 0 && tokens[0].isEmpty()) {
+            String[] rest = new String[tokens.length - 1];
+            System.arraycopy(tokens, 1, rest, 0, rest.length);
+            return rest;
+        }
+        return tokens;
+    }
+
+    private static int parseInt(String filename, int line, String token) throws IOException {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw error(filename, line, "expected an integer, got " + token);
+        }
+    }
+
+    private static double parseDouble(String filename, int line, String token) throws IOException {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw error(filename, line, "expected a number, got " + token);
+        }
+    }
+
+    private static IOException error(String filename, int line, String msg) {
+        return new IOException(filename + ":" + line + ": " + msg);
+    }
+
+}
@@ -30,7 +30,7 @@ public class PAP_Inverse extends PAP {
      * @see problems.pap.PAP#evaluate()
      */
     @Override
-    public Double evaluatePAP(Solution<int[]> sol) {
+    public long evaluatePAP(Solution<int[]> sol) {
         return -super.evaluatePAP(sol);
     }
 
@@ -40,7 +40,7 @@ public class PAP_Inverse extends PAP {
      * @see problems.pap.PAP#evaluateInsertionPAP()
      */
     @Override
-    public Double evaluateInsertionPAP(int[] elem) {
+    public long evaluateInsertionPAP(int[] elem) {
         return -super.evaluateInsertionPAP(elem);
     }
 
@@ -50,7 +50,7 @@ public class PAP_Inverse extends PAP {
      * @see problems.pap.PAP#evaluateRemovalPAP()
      */
     @Override
-    public Double evaluateRemovalPAP(int[] elem) {
+    public long evaluateRemovalPAP(int[] elem) {
         return -super.evaluateRemovalPAP(elem);
     }
 
@@ -60,8 +60,58 @@ public class PAP_Inverse extends PAP {
      * @see problems.pap.PAP#evaluateExchangePAP()
      */
     @Override
-    public Double evaluateExchangePAP(int[] elemIn, int[] elemOut) {
+    public long evaluateExchangePAP(int[] elemIn, int[] elemOut) {
         return -super.evaluateExchangePAP(elemIn, elemOut);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see problems.pap.PAP#evaluateReassignPAP()
+     */
+    @Override
+    public long evaluateReassignPAP(int d, int pOut, int pIn) {
+        return -super.evaluateReassignPAP(d, pOut, pIn);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see problems.pap.PAP#evaluateMacroInsertionPAP()
+     */
+    @Override
+    public long evaluateMacroInsertionPAP(int p, int d) {
+        return -super.evaluateMacroInsertionPAP(p, d);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see problems.pap.PAP#evaluateMacroRemovalPAP()
+     */
+    @Override
+    public long evaluateMacroRemovalPAP(int p, int d) {
+        return -super.evaluateMacroRemovalPAP(p, d);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see problems.pap.PAP#evaluateMacroReassignmentPAP()
+     */
+    @Override
+    public long evaluateMacroReassignmentPAP(int d, int pOut, int pIn) {
+        return -super.evaluateMacroReassignmentPAP(d, pOut, pIn);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see problems.pap.PAP#evaluateShiftPAP()
+     */
+    @Override
+    public long evaluateShiftPAP(int d, int t, int tIn) {
+        return -super.evaluateShiftPAP(d, t, tIn);
+    }
+
 }
\ No newline at end of file
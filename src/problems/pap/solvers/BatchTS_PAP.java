@@ -0,0 +1,137 @@
+package problems.pap.solvers;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import metaheuristics.tabusearch.AbstractTS;
+import solutions.Solution;
+
+/**
+ * Batch of TS_PAP experiments, given by every combination of instance, seed
+ * and parameter set. The runs are scheduled on a pool with at most one thread
+ * per available core, and the results are written by a single thread to one
+ * CSV file, a line per run, in the order the runs finish.
+ *
+ * @author brichau, einnarelli, rmeirelles
+ */
+public class BatchTS_PAP {
+
+    /**
+     * A parameter set of the TS: tenure, iterations and time limit.
+     */
+    public static class Params {
+
+        public final int tenure;
+        public final int iterations;
+        public final double maxTime;
+
+        public Params(int tenure, int iterations, double maxTime) {
+            this.tenure = tenure;
+            this.iterations = iterations;
+            this.maxTime = maxTime;
+        }
+
+    }
+
+    /**
+     * Runs every combination of instance, seed and parameter set and writes the
+     * results to a CSV file, which is overwritten.
+     *
+     * @param instances       Names of the instance files.
+     * @param seeds           Seeds of the random number generator.
+     * @param params          Parameter sets.
+     * @param resultsFileName The CSV file where the results will be stored.
+     * @throws IOException Necessary for I/O operations.
+     */
+    public static void run(String[] instances, long[] seeds, Params[] params, String resultsFileName)
+            throws IOException {
+
+        List<Callable<String>> runs = new ArrayList<Callable<String>>();
+        for (String file : instances)
+            for (long seed : seeds)
+                for (Params param : params)
+                    runs.add(() -> runOne(file, seed, param));
+
+        int nThreads = Math.min(runs.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(nThreads, 1));
+        CompletionService<String> results = new ExecutorCompletionService<String>(executor);
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(resultsFileName))) {
+
+            out.write("instance;seed;tenure;iterations;maxTime;solutionCost;solutionSize;feasible;"
+                    + "bestIteration;bestTime;totalTime\n");
+            out.flush();
+
+            for (Callable<String> r : runs)
+                results.submit(r);
+
+            // only this thread writes, so lines of different runs never interleave
+            for (int i = 0; i < runs.size(); i++) {
+                String line = results.take().get();
+                out.write(line);
+                out.flush();
+                System.out.print(line);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException("run failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    /**
+     * Runs the TS once and gives its result as a CSV line.
+     */
+    private static String runOne(String file, long seed, Params param) throws IOException {
+
+        String name = file.substring(file.lastIndexOf("/") + 1, file.lastIndexOf("."));
+        long startTime = System.currentTimeMillis();
+
+        TS_PAP ts = new TS_PAP(param.tenure, param.iterations, file, null, name);
+        ts.setSeed(seed);
+
+        // iteration and time at which the best solution was found
+        double[] best = new double[] { -1, 0 };
+        ts.addIncumbentListener((sol, iteration, time) -> {
+            best[0] = iteration;
+            best[1] = time;
+        });
+
+        Solution<int[]> bestSol = ts.solve(param.maxTime);
+        double totalTime = (System.currentTimeMillis() - startTime) / (double) 1000;
+
+        return String.format("%s;%d;%d;%d;%s;%s;%d;%s;%d;%s;%s\n", name, seed, param.tenure, param.iterations,
+                param.maxTime, -1.00 * bestSol.cost, bestSol.size(), ts.pap.isSolFeasible(bestSol), (int) best[0],
+                best[1], totalTime);
+
+    }
+
+    /**
+     * A main method running the TS on all instances.
+     */
+    public static void main(String[] args) throws IOException {
+
+        String inst[] = { "instances/P50D50S1.pap", "instances/P50D50S3.pap", "instances/P50D50S5.pap",
+                "instances/P70D70S1.pap", "instances/P70D70S3.pap", "instances/P70D70S5.pap", "instances/P70D100S6.pap",
+                "instances/P70D100S8.pap", "instances/P70D100S10.pap", "instances/P100D150S10.pap",
+                "instances/P100D150S15.pap", "instances/P100D150S20.pap" };
+
+        AbstractTS.verbose = false;
+        run(inst, new long[] { 0 }, new Params[] { new Params(20, 1000, 1800.0) }, "pap_ts_batch.csv");
+
+    }
+
+}
@@ -1,14 +1,32 @@
 package problems.pap.solvers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.Checkpoint;
+import metaheuristics.tabusearch.Checkpointable;
+import metaheuristics.tabusearch.NeighborhoodMoveEvent;
+import metaheuristics.tabusearch.PortfolioTS;
+import metaheuristics.tabusearch.UpdateCLEvent;
+import metaheuristics.tabusearch.VisitedSet;
+import problems.pap.PAP;
+import problems.pap.PAPSolution;
+import problems.pap.PAPSolutionFile;
 import problems.pap.PAP_Inverse;
 import solutions.Solution;
 
@@ -19,17 +37,180 @@ import solutions.Solution;
  * 
  * @author brichau, einnarelli, rmeirelles
  */
-public class TS_PAP extends AbstractTS<int[]> {
+public class TS_PAP extends AbstractTS<int[]> implements Checkpointable {
 
     /**
-     * empty element to enter tabu list
+     * problem evaluator
      */
-    private final int[] fake = new int[] {};
+    PAP_Inverse pap;
 
     /**
-     * problem evaluator
+     * every possible element [p, d, t], indexed by {@link #id(int, int, int)}
      */
-    PAP_Inverse pap;
+    private int[][] elems;
+
+    /**
+     * position of each element in CL, or -1 if it is not a candidate
+     */
+    private int[] clPos;
+
+    /**
+     * CL instance and size left by the last update, used to detect changes made
+     * to it elsewhere
+     */
+    private ArrayList<int[]> clList;
+    private int clSize;
+
+    /**
+     * professors and times of each discipline in the solution of the last CL
+     * update, or null if CL must be fully updated
+     */
+    private int[] clProf;
+    private long[] clSlots;
+
+    /**
+     * professors, disciplines and times whose candidates must be checked again
+     */
+    private boolean[] dirtyP, dirtyD, dirtyT;
+
+    /**
+     * number of candidates in CL of each pair (p, d), indexed by p * D + d
+     */
+    private int[] clCount;
+
+    /**
+     * insertion cost of the candidates of each pair (p, d), which only depends on
+     * p and d, and the pairs with candidates in CL by insertion cost; only kept
+     * during the constructive heuristic
+     */
+    private long[] pairCost;
+    private TreeMap<Long, Set<Integer>> byCost;
+
+    /**
+     * last iteration at which each element [p, d, t] is tabu, indexed by
+     * {@link #id(int, int, int)}
+     */
+    private int[] tabuUntil;
+
+    /**
+     * random 64-bit key of each element [p, d, t], indexed by
+     * {@link #id(int, int, int)}; the Zobrist hash of a solution is the xor of
+     * the keys of its elements
+     */
+    private long[] zobrist;
+
+    /**
+     * Zobrist hash of the current solution
+     */
+    private long hash;
+
+    /**
+     * hashes of the recently visited solutions, or null if they are not kept
+     */
+    private VisitedSet visited;
+
+    /**
+     * maximum number of visited solutions kept
+     */
+    private int visitedCapacity = 1 << 16;
+
+    /**
+     * minimum number of moves evaluated by a single parallel task
+     */
+    private static final int moveGrain = 4096;
+
+    /**
+     * pool evaluating the neighborhood in parallel, or null to evaluate it
+     * sequentially
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * elements of the current solution, indexed as in the neighborhood scan
+     */
+    private int[][] solElems;
+
+    /**
+     * whether the structured moves replace the exchanges in the neighborhood
+     */
+    private boolean structuredMoves = true;
+
+    /**
+     * whether the macro moves, over whole disciplines, are part of the
+     * neighborhood
+     */
+    private boolean macroMoves = true;
+
+    /**
+     * whether the structured moves, instead of the exchanges, and the macro
+     * moves are evaluated in the current iteration
+     */
+    private boolean scanStructured, scanMacro;
+
+    /**
+     * Strategies to explore the neighborhood:
+     * <ul>
+     * <li>best: evaluates every move and applies the best one;</li>
+     * <li>first: evaluates the moves from a random one on and applies the first
+     * improving move, or the best one if none improves within the budget;</li>
+     * <li>sample: evaluates a random sample of budget moves and applies the best
+     * one;</li>
+     * <li>candidates: evaluates only the moves of the pairs (p, d) with the
+     * highest a_pd, as many as fit in the budget: the insertions and exchanges of
+     * their candidates, the reassignments and macro insertions and reallocations
+     * of d to p, and the shifts of d if p gives it; every removal and macro
+     * removal is evaluated.</li>
+     * </ul>
+     */
+    public enum Strategy {
+        best, first, sample, candidates
+    }
+
+    /**
+     * strategy to explore the neighborhood
+     */
+    private Strategy strategy = Strategy.best;
+
+    /**
+     * maximum number of moves evaluated per iteration, ignored by the best
+     * strategy
+     */
+    private int budget = Integer.MAX_VALUE;
+
+    /**
+     * pairs (p, d), indexed by p * D + d, by decreasing a_pd, used by the
+     * candidates strategy
+     */
+    private int[] byScore;
+
+    /**
+     * pairs selected by the candidates strategy in the current iteration
+     */
+    private int[] topPairs;
+
+    /**
+     * candidates whose insertions and exchanges are evaluated in the current
+     * iteration: CL itself or, with the candidates strategy, part of it
+     */
+    private List<int[]> scanCL;
+
+    /**
+     * pairs (p, d), indexed by p * D + d, whose reassignments and macro
+     * insertions and reallocations are evaluated in the current iteration, the
+     * first nPairs of them, or null for every pair
+     */
+    private int[] scanPairs;
+
+    /**
+     * number of pairs evaluated in the current iteration
+     */
+    private int nPairs;
+
+    /**
+     * elements of the current solution whose shifts are evaluated in the current
+     * iteration: solElems itself or, with the candidates strategy, part of it
+     */
+    private int[][] scanShift;
 
     /**
      * Constructor for the TS_PAP class. An inverse PAP objective function is passed
@@ -44,13 +225,14 @@ public class TS_PAP extends AbstractTS<int[]> {
      * @param instName        The instance name.
      * @throws IOException necessary for I/O operations.
      */
-    public TS_PAP(Integer tenure, Integer iterations, String filename, String resultsFileName, String instName)
+    public TS_PAP(int tenure, int iterations, String filename, String resultsFileName, String instName)
             throws IOException {
 
         super(new PAP_Inverse(filename), tenure, iterations, resultsFileName, instName);
 
         // cast to PAP_Inverse to have access to it's attributes and methods
         pap = (PAP_Inverse) this.ObjFunction;
+        metrics.setMoveTypes(Move.names);
 
     }
 
@@ -63,16 +245,30 @@ public class TS_PAP extends AbstractTS<int[]> {
     public ArrayList<int[]> makeCL() {
 
         ArrayList<int[]> _CL = new ArrayList<int[]>();
+        elems = new int[pap.P * pap.D * pap.T][];
+        clPos = new int[elems.length];
+
+        // the keys are fixed, so equal solutions have equal hashes in every run
+        SplittableRandom keys = new SplittableRandom(elems.length);
+        zobrist = new long[elems.length];
+        for (int i = 0; i < zobrist.length; i++)
+            zobrist[i] = keys.nextLong();
 
         // we generate every [p, d, t] array possible
         for (int p = 0; p < pap.P; p++) {
             for (int d = 0; d < pap.D; d++) {
                 for (int t = 0; t < pap.T; t++) {
-                    _CL.add(new int[] { p, d, t });
+                    int[] e = new int[] { p, d, t };
+                    elems[id(p, d, t)] = e;
+                    _CL.add(e);
                 }
             }
         }
 
+        // a new CL requires a full update
+        clProf = null;
+        byScore = null;
+
         return _CL;
 
     }
@@ -88,69 +284,332 @@ public class TS_PAP extends AbstractTS<int[]> {
         return _RCL;
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * {@inheritDoc}
      * 
-     * @see metaheuristics.tabusearch.AbstractTS#makeTL()
+     * The tabu elements are not kept in the returned deque, which stays empty.
+     * Instead, each element [p, d, t] has the last iteration at which it is tabu,
+     * so checking if it is tabu is a single array lookup by value. An element
+     * that enters or leaves the solution is tabu during the next tenure
+     * iterations. Besides, the Zobrist hashes of the last visited solutions are
+     * kept, starting with the current one, and moves back to any of them are
+     * rejected.
      */
     @Override
     public ArrayDeque<int[]> makeTL() {
 
-        ArrayDeque<int[]> _TS = new ArrayDeque<int[]>(2 * tenure);
+        tabuUntil = new int[pap.P * pap.D * pap.T];
+        Arrays.fill(tabuUntil, -1);
 
-        for (int i = 0; i < 2 * tenure; i++) {
-            _TS.add(fake);
-        }
+        hash = 0;
+        for (int[] e : currentSol)
+            hash ^= zobrist[id(e)];
+        visited = (visitedCapacity > 0) ? new VisitedSet(visitedCapacity) : null;
+        if (visited != null)
+            visited.add(hash);
 
-        return _TS;
+        return new ArrayDeque<int[]>();
 
     }
 
     /*
      * {@inheritDoc}
      * 
-     * This method initializes an empty CL and iterate over every possible
-     * candidate. One element is inserted in CL if it is feasible and is not in the
-     * current solution.
+     * An element is in CL if it is feasible and is not in the current solution.
+     * The first call after makeCL checks every possible candidate. The next ones
+     * compare the current solution with the one of the last update and only check
+     * again the candidates which share a professor, discipline or time with an
+     * element that entered or left the solution, since the feasibility of the
+     * others did not change.
      */
     @Override
     public void updateCL() {
 
-        ArrayList<int[]> _CL = new ArrayList<int[]>();
-        Set<List<Integer>> sol = new HashSet<List<Integer>>();
+        PAPSolution sol = (PAPSolution) currentSol;
+        pap.accumulate(sol);
+
+        if (clProf == null) {
+            fullUpdateCL(sol);
+            return;
+        }
+
+        // CL was changed outside of this method, so its positions are rebuilt
+        if (CL != clList || CL.size() != clSize) {
+            Arrays.fill(clPos, -1);
+            Arrays.fill(clCount, 0);
+            for (int i = 0; i < CL.size(); i++) {
+                clPos[id(CL.get(i))] = i;
+                clCount[id(CL.get(i)) / pap.T]++;
+            }
+            clList = CL;
+        }
+
+        // mark professors, disciplines and times of the elements that changed
+        Arrays.fill(dirtyP, false);
+        Arrays.fill(dirtyD, false);
+        Arrays.fill(dirtyT, false);
+
+        for (int d = 0; d < pap.D; d++) {
+
+            int oldP = clProf[d], newP = sol.prof[d];
+            long oldS = clSlots[d], newS = sol.slots[d];
+            if (oldP == newP && oldS == newS)
+                continue;
+
+            dirtyD[d] = true;
+            if (oldP >= 0)
+                dirtyP[oldP] = true;
+            if (newP >= 0)
+                dirtyP[newP] = true;
+
+            // every time of d changed if the professor changed
+            long changed = (oldP == newP) ? oldS ^ newS : oldS | newS;
+            for (; changed != 0; changed &= changed - 1)
+                dirtyT[Long.numberOfTrailingZeros(changed)] = true;
+
+            clProf[d] = newP;
+            clSlots[d] = newS;
+
+        }
+
+        // check again the affected candidates
+        for (int d = 0; d < pap.D; d++)
+            if (dirtyD[d])
+                for (int p = 0; p < pap.P; p++)
+                    for (int t = 0; t < pap.T; t++)
+                        checkCandidate(sol, p, d, t);
+
+        for (int p = 0; p < pap.P; p++)
+            if (dirtyP[p])
+                for (int d = 0; d < pap.D; d++)
+                    for (int t = 0; t < pap.T; t++)
+                        checkCandidate(sol, p, d, t);
+
+        for (int t = 0; t < pap.T; t++)
+            if (dirtyT[t])
+                for (int p = 0; p < pap.P; p++)
+                    for (int d = 0; d < pap.D; d++)
+                        checkCandidate(sol, p, d, t);
+
+        clSize = CL.size();
 
-        pap.accumulate(currentSol);
+    }
 
-        // solution to list
-        for (int[] elem : currentSol)
-            sol.add(Arrays.asList(new Integer[] { elem[0], elem[1], elem[2] }));
+    /**
+     * Builds CL by checking every possible candidate, and saves the solution it
+     * refers to.
+     * 
+     * @param sol The current solution.
+     */
+    private void fullUpdateCL(PAPSolution sol) {
+
+        CL = new ArrayList<int[]>();
+        Arrays.fill(clPos, -1);
+        clCount = new int[pap.P * pap.D];
 
         for (int p = 0; p < pap.P; p++) {
             for (int d = 0; d < pap.D; d++) {
-                for (int t = 0; t < pap.T; t++) {
 
-                    // candidate as list to check if it is in solution
-                    List<Integer> elist = Arrays.asList(new Integer[] { p, d, t });
+                // an element is only a candidate if it is feasible and not in solution
+                long slots = pap.feasibleSlots(p, d) & ~(sol.prof[d] == p ? sol.slots[d] : 0);
+                clCount[p * pap.D + d] = Long.bitCount(slots);
+                for (; slots != 0; slots &= slots - 1) {
+                    int i = id(p, d, Long.numberOfTrailingZeros(slots));
+                    clPos[i] = CL.size();
+                    CL.add(elems[i]);
+                }
+
+            }
+        }
 
-                    // an element can be a candidate if not in solution
-                    if (!sol.contains(elist)) {
+        clList = CL;
+        clSize = CL.size();
+        clProf = sol.prof.clone();
+        clSlots = sol.slots.clone();
+        dirtyP = new boolean[pap.P];
+        dirtyD = new boolean[pap.D];
+        dirtyT = new boolean[pap.T];
 
-                        // cast list of Integer to array of int
-                        int[] e = elist.stream().mapToInt(Integer::intValue).toArray();
+    }
 
-                        // an element is only a candidate if it is feasible to the problem
-                        if (pap.isElemFeasible(e))
-                            _CL.add(e);
+    /**
+     * Inserts the element [p, d, t] into CL or removes it from CL according to
+     * its current feasibility. Removals move the last element of CL to the
+     * position of the removed one.
+     */
+    private void checkCandidate(PAPSolution sol, int p, int d, int t) {
 
-                    }
+        int i = id(p, d, t);
+        int[] e = elems[i];
+        boolean cand = !sol.contains(p, d, t) && pap.isElemFeasible(e);
+
+        if (cand && clPos[i] < 0) {
+            clPos[i] = CL.size();
+            CL.add(e);
+            countCandidate(i / pap.T, 1);
+        } else if (!cand && clPos[i] >= 0) {
+            int[] last = CL.remove(CL.size() - 1);
+            if (last != e) {
+                CL.set(clPos[i], last);
+                clPos[id(last)] = clPos[i];
+            }
+            clPos[i] = -1;
+            countCandidate(i / pap.T, -1);
+        }
+
+    }
+
+    /**
+     * Adds n to the number of candidates of a pair (p, d), and keeps the pairs
+     * with candidates by insertion cost during the constructive heuristic.
+     * 
+     * @param pair The pair, as p * D + d.
+     * @param n    The number of candidates added, or removed if negative.
+     */
+    private void countCandidate(int pair, int n) {
+
+        int before = clCount[pair];
+        clCount[pair] += n;
+
+        if (byCost != null && (before == 0) != (clCount[pair] == 0)) {
+            if (before == 0)
+                byCost.computeIfAbsent(pairCost[pair], c -> new HashSet<Integer>()).add(pair);
+            else
+                unlistPair(pair);
+        }
+
+    }
+
+    /**
+     * Removes a pair (p, d) from the pairs by insertion cost.
+     */
+    private void unlistPair(int pair) {
+        Set<Integer> pairs = byCost.get(pairCost[pair]);
+        pairs.remove(pair);
+        if (pairs.isEmpty())
+            byCost.remove(pairCost[pair]);
+    }
+
+    /**
+     * Evaluates again the insertion cost of the pairs (p, d) of discipline d,
+     * the only ones whose cost changes when an element of d enters the solution.
+     */
+    private void updatePairCosts(int d) {
+
+        for (int p = 0; p < pap.P; p++) {
+
+            int pair = p * pap.D + d;
+            long cost = pap.evaluateInsertionCostAsLong(elems[id(p, d, 0)], currentSol);
+            if (cost == pairCost[pair])
+                continue;
+
+            if (clCount[pair] > 0)
+                unlistPair(pair);
+            pairCost[pair] = cost;
+            if (clCount[pair] > 0)
+                byCost.computeIfAbsent(cost, c -> new HashSet<Integer>()).add(pair);
+
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The insertion cost of an element [p, d, t] only depends on p and d, so it
+     * is evaluated once per pair and kept, with the pairs that have candidates in
+     * CL, in a map ordered by cost. After each insertion only the pairs of the
+     * inserted discipline are evaluated again, and the RCL is made of the
+     * candidates of the pairs with the minimum cost, in the order they have in
+     * CL, so the element chosen is the same as in the generic heuristic.
+     */
+    @Override
+    public Solution<int[]> constructiveHeuristic() {
+
+        CL = makeCL();
+        RCL = makeRCL();
+        currentSol = createEmptySol();
+        currentCost = Double.POSITIVE_INFINITY;
+
+        // the first update also makes the evaluator track the solution
+        updateCL();
+
+        pairCost = new long[pap.P * pap.D];
+        byCost = new TreeMap<Long, Set<Integer>>();
+        for (int p = 0; p < pap.P; p++) {
+            for (int d = 0; d < pap.D; d++) {
+                int pair = p * pap.D + d;
+                pairCost[pair] = pap.evaluateInsertionCostAsLong(elems[id(p, d, 0)], currentSol);
+                if (clCount[pair] > 0)
+                    byCost.computeIfAbsent(pairCost[pair], c -> new HashSet<Integer>()).add(pair);
+            }
+        }
+
+        try {
+
+            while (!constructiveStopCriteria() && !shouldStop()) {
+
+                currentCost = currentSol.cost;
+                updateCL();
+
+                // always stop when CL is empty
+                if (CL.size() == 0)
+                    break;
+
+                // candidates of the pairs with the minimum cost, in CL order
+                for (int pair : byCost.firstEntry().getValue())
+                    for (int t = 0; t < pap.T; t++)
+                        if (clPos[pair * pap.T + t] >= 0)
+                            RCL.add(elems[pair * pap.T + t]);
+                RCL.sort((e1, e2) -> Integer.compare(clPos[id(e1)], clPos[id(e2)]));
+
+                // choose a candidate randomly from the RCL
+                int[] inCand = RCL.get(rng.nextInt(RCL.size()));
+                removeCandidate(inCand);
+                pap.applyInsertion(inCand, currentSol);
+                currentSol.cost = pap.evaluatePAP(currentSol);
+                updatePairCosts(inCand[1]);
+                RCL.clear();
 
-                }
             }
+
+        } finally {
+            byCost = null;
+            pairCost = null;
         }
 
-        // copy _CL into CL
-        CL = new ArrayList<int[]>(_CL);
+        return currentSol;
+
+    }
+
+    /**
+     * Removes a candidate from CL keeping the order of the others, as the
+     * generic constructive heuristic does.
+     */
+    private void removeCandidate(int[] e) {
+
+        int i = id(e), pos = clPos[i];
+        CL.remove(pos);
+        clPos[i] = -1;
+        for (int j = pos; j < CL.size(); j++)
+            clPos[id(CL.get(j))] = j;
+        countCandidate(i / pap.T, -1);
+        clSize = CL.size();
+
+    }
+
+    /**
+     * Index of the element [p, d, t] among all possible elements.
+     */
+    private int id(int p, int d, int t) {
+        return (p * pap.D + d) * pap.T + t;
+    }
 
+    /**
+     * Index of an element among all possible elements.
+     */
+    private int id(int[] elem) {
+        return id(elem[0], elem[1], elem[2]);
     }
 
     /**
@@ -161,7 +620,7 @@ public class TS_PAP extends AbstractTS<int[]> {
      */
     @Override
     public Solution<int[]> createEmptySol() {
-        Solution<int[]> sol = new Solution<int[]>();
+        Solution<int[]> sol = new PAPSolution(pap.D, pap.T);
         sol.cost = 10000.0 * pap.D;
         return sol;
     }
@@ -170,87 +629,848 @@ public class TS_PAP extends AbstractTS<int[]> {
      * {@inheritDoc}
      * 
      * The local search operator developed for the PAP objective function is
-     * composed by the neighborhood moves Insertion, Removal and 2-Exchange.
+     * composed by the neighborhood moves Insertion and Removal of elements
+     * [p, d, t], by the structured moves Reassignment of a discipline with all
+     * its times to another professor and Shift of one time of a discipline to
+     * another time, whose deltas and feasibility are read from the evaluator
+     * counts in O(1), or O(h_d) for reassignments, or else by the 2-Exchange of
+     * elements, as chosen by {@link #setStructuredMoves(boolean)}, and by the
+     * macro moves Insertion, Removal and Reallocation of a whole discipline with
+     * h[d] times, whose deltas are exact and whose times come from
+     * {@link PAP#macroSlots}, unless disabled by
+     * {@link #setMacroMoves(boolean)}. Besides the candidates, the neighborhood
+     * then has O(D * (P + T)) moves instead of O(|CL| * |S|). The moves are
+     * numbered in this
+     * order, and the best one is the first with the minimum cost variation, so
+     * the chosen move is the same whether the neighborhood is evaluated
+     * sequentially or in parallel. The moves evaluated depend on the strategy
+     * set by {@link #setStrategy(Strategy, int)}, the whole neighborhood by
+     * default.
      */
     @Override
     public Solution<int[]> neighborhoodMove() {
 
-        Double minDeltaCost;
-        int[] bestCandIn = null, bestCandOut = null;
-        minDeltaCost = Double.POSITIVE_INFINITY;
-
-        // update candidate list
+        // update candidate list; it also leaves the current solution tracked by
+        // the evaluator, which is then only read during the evaluation
+        NeighborhoodMoveEvent moveEvent = new NeighborhoodMoveEvent();
+        moveEvent.begin();
+        UpdateCLEvent updateEvent = new UpdateCLEvent();
+        updateEvent.begin();
+        long start = System.nanoTime();
         updateCL();
+        long updated = System.nanoTime();
+        metrics.addUpdateTime(updated - start);
+        if (updateEvent.shouldCommit()) {
+            updateEvent.candidates = CL.size();
+            updateEvent.commit();
+        }
+
+        solElems = currentSol.toArray(new int[currentSol.size()][]);
+        scanStructured = structuredMoves;
+        scanMacro = macroMoves;
+        if (strategy == Strategy.candidates)
+            scanTop();
+        else {
+            scanCL = CL;
+            scanPairs = null;
+            nPairs = pap.D * pap.P;
+            scanShift = solElems;
+        }
+
+        long nMoves = scanCL.size() + solElems.length;
+        if (scanStructured)
+            nMoves += nPairs + (long) scanShift.length * pap.T;
+        else
+            nMoves += (long) scanCL.size() * solElems.length;
+        if (scanMacro)
+            nMoves += 2L * nPairs + pap.D;
+
+        // a scan stopped early leaves the current solution as it is
+        Move best;
+        if (strategy == Strategy.first)
+            best = firstImprovement(nMoves);
+        else if (strategy == Strategy.sample && budget < nMoves)
+            best = sample(nMoves);
+        else
+            best = (pool == null) ? evaluateMoves(0, nMoves) : pool.invoke(new MoveTask(0, nMoves));
+        metrics.addEvaluationTime(System.nanoTime() - updated);
+
+        if (shouldStop())
+            return null;
+
+        // Implement the best non-tabu move
+        PAPSolution sol = (PAPSolution) currentSol;
+        switch (best.type) {
+        case Move.insertion:
+            insertElem(best.p, best.d, best.t);
+            break;
+        case Move.removal:
+            removeElem(best.p, best.d, best.t);
+            break;
+        case Move.exchange:
+            removeElem(best.p2, best.d2, best.t2);
+            insertElem(best.p, best.d, best.t);
+            break;
+        case Move.reassignment:
+            long slots = sol.slots[best.d];
+            for (long mask = slots; mask != 0; mask &= mask - 1)
+                removeElem(best.p, best.d, Long.numberOfTrailingZeros(mask));
+            for (long mask = slots; mask != 0; mask &= mask - 1)
+                insertElem(best.p2, best.d, Long.numberOfTrailingZeros(mask));
+            break;
+        case Move.shift:
+            removeElem(best.p, best.d, best.t);
+            insertElem(best.p, best.d, best.t2);
+            break;
+        case Move.macro:
+            if (best.p >= 0)
+                for (long mask = sol.slots[best.d]; mask != 0; mask &= mask - 1)
+                    removeElem(best.p, best.d, Long.numberOfTrailingZeros(mask));
+            if (best.p2 >= 0)
+                for (long mask = best.slots; mask != 0; mask &= mask - 1)
+                    insertElem(best.p2, best.d, Long.numberOfTrailingZeros(mask));
+            break;
+        }
+
+        // the evaluator keeps the objective up to date with the moves, so it is
+        // read in O(1) instead of adding up the deltas
+        currentSol.cost = pap.evaluatePAP(currentSol);
+        if (visited != null && best.type != Move.none)
+            visited.add(hash);
+
+        if (moveEvent.shouldCommit()) {
+            moveEvent.iteration = currIteration;
+            moveEvent.moveType = (best.type == Move.none) ? "none" : Move.names[best.type];
+            moveEvent.deltaCost = best.deltaCost;
+            moveEvent.candidates = CL.size();
+            moveEvent.neighborhoodSize = nMoves;
+            moveEvent.commit();
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Evaluates the moves numbered from lo (inclusive) to hi (exclusive) and
+     * returns the first one with the minimum cost variation among those which are
+     * feasible and either not tabu or satisfy the aspiration criterion. A move is
+     * tabu if any element entering or leaving the solution is tabu. Moves back to
+     * a recently visited solution are rejected before they are evaluated.
+     * 
+     * @param lo First move.
+     * @param hi Last move, exclusive.
+     * @return The best move in the range.
+     */
+    private Move evaluateMoves(long lo, long hi) {
+        Move best = new Move();
+        for (long k = lo; k < hi && !shouldStop(); k += moveGrain)
+            evaluateMoves(k, Math.min(k + moveGrain, hi), best);
+        return best;
+    }
+
+    /**
+     * Evaluates the moves numbered from lo (inclusive) to hi (exclusive), keeping
+     * in best the first one with a cost variation smaller than the one already
+     * there, as in {@link #evaluateMoves(long, long)}.
+     * 
+     * @param lo   First move.
+     * @param hi   Last move, exclusive.
+     * @param best The best move found so far, updated in place.
+     */
+    private void evaluateMoves(long lo, long hi, Move best) {
+
+        PAPSolution sol = (PAPSolution) currentSol;
+        int nCL = scanCL.size(), nSol = solElems.length, D = pap.D, T = pap.T;
+        long k = lo, k0, base;
 
         // Evaluate insertions of non-tabu candidates
-        for (int[] candIn : CL) {
-            Double deltaCost = ObjFunction.evaluateInsertionCost(candIn, currentSol);
-            if (!TL.contains(candIn) || currentSol.cost + deltaCost < incumbentSol.cost) {
-                if (deltaCost < minDeltaCost) {
-                    minDeltaCost = deltaCost;
-                    bestCandIn = candIn;
-                    bestCandOut = null;
-                }
-            }
+        k0 = k;
+        for (; k < hi && k < nCL; k++) {
+            int[] candIn = scanCL.get((int) k);
+            if (revisits(hash ^ zobrist[id(candIn)]))
+                continue;
+            long deltaCost = pap.evaluateInsertionCostAsLong(candIn, currentSol);
+            if (deltaCost < best.deltaCost && (!isTabu(candIn) || aspires(deltaCost)))
+                best.set(Move.insertion, deltaCost, candIn[0], candIn[1], candIn[2], 0, 0, 0);
         }
+        metrics.addMoves(Move.insertion, k - k0);
 
         // Evaluate removals of non-tabu candidates
-        for (int[] candOut : currentSol) {
-            Double deltaCost = ObjFunction.evaluateRemovalCost(candOut, currentSol);
-            if (!TL.contains(candOut) || currentSol.cost + deltaCost < incumbentSol.cost) {
-                if (deltaCost < minDeltaCost) {
-                    minDeltaCost = deltaCost;
-                    bestCandIn = null;
-                    bestCandOut = candOut;
-                }
-            }
+        k0 = k;
+        for (base = nCL; k < hi && k < base + nSol; k++) {
+            int[] candOut = solElems[(int) (k - base)];
+            if (revisits(hash ^ zobrist[id(candOut)]))
+                continue;
+            long deltaCost = pap.evaluateRemovalCostAsLong(candOut, currentSol);
+            if (deltaCost < best.deltaCost && (!isTabu(candOut) || aspires(deltaCost)))
+                best.set(Move.removal, deltaCost, candOut[0], candOut[1], candOut[2], 0, 0, 0);
         }
+        metrics.addMoves(Move.removal, k - k0);
+
+        long nExchange = scanStructured ? 0 : (long) nCL * nSol, nReassign = scanStructured ? nPairs : 0,
+                nShift = scanStructured ? (long) scanShift.length * T : 0, nMacro = scanMacro ? nPairs : 0;
 
         // Evaluate exchanges of non-tabu candidates
-        for (int[] candIn : CL) {
-            for (int[] candOut : currentSol) {
-                Double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, currentSol);
-                if ((!TL.contains(candIn) && !TL.contains(candOut))
-                        || currentSol.cost + deltaCost < incumbentSol.cost) {
-                    if (deltaCost < minDeltaCost) {
-                        minDeltaCost = deltaCost;
-                        bestCandIn = candIn;
-                        bestCandOut = candOut;
-                    }
+        k0 = k;
+        for (base += nSol; k < hi && k < base + nExchange; k++) {
+            int[] candIn = scanCL.get((int) ((k - base) / nSol)), candOut = solElems[(int) ((k - base) % nSol)];
+            if (revisits(hash ^ zobrist[id(candIn)] ^ zobrist[id(candOut)]))
+                continue;
+            long deltaCost = pap.evaluateExchangeCostAsLong(candIn, candOut, currentSol);
+            if (deltaCost < best.deltaCost && ((!isTabu(candIn) && !isTabu(candOut)) || aspires(deltaCost)))
+                best.set(Move.exchange, deltaCost, candIn[0], candIn[1], candIn[2], candOut[0], candOut[1],
+                        candOut[2]);
+        }
+        metrics.addMoves(Move.exchange, k - k0);
+
+        // Evaluate reassignments of each allocated discipline to each professor
+        k0 = k;
+        for (base += nExchange; k < hi && k < base + nReassign; k++) {
+            int pair = pairAt(k - base), d = pair % D, pIn = pair / D, pOut = sol.prof[d];
+            if (pOut < 0 || !pap.isReassignFeasible(d, sol.slots[d], pOut, pIn)
+                    || revisits(hash ^ slotsHash(pOut, d, sol.slots[d]) ^ slotsHash(pIn, d, sol.slots[d])))
+                continue;
+            long deltaCost = pap.evaluateReassignPAP(d, pOut, pIn);
+            if (deltaCost < best.deltaCost && (!isReassignTabu(d, sol.slots[d], pOut, pIn) || aspires(deltaCost)))
+                best.set(Move.reassignment, deltaCost, pOut, d, 0, pIn, 0, 0);
+        }
+        metrics.addMoves(Move.reassignment, k - k0);
+
+        // Evaluate shifts of each element to each other time
+        k0 = k;
+        for (base += nReassign; k < hi && k < base + nShift; k++) {
+            int[] e = scanShift[(int) ((k - base) / T)];
+            int p = e[0], d = e[1], t = e[2], tIn = (int) ((k - base) % T);
+            if (!pap.isShiftFeasible(p, d, t, tIn) || revisits(hash ^ zobrist[id(p, d, t)] ^ zobrist[id(p, d, tIn)]))
+                continue;
+            long deltaCost = pap.evaluateShiftPAP(d, t, tIn);
+            if (deltaCost < best.deltaCost && ((!isTabu(p, d, t) && !isTabu(p, d, tIn)) || aspires(deltaCost)))
+                best.set(Move.shift, deltaCost, p, d, t, 0, 0, tIn);
+        }
+        metrics.addMoves(Move.shift, k - k0);
+
+        // Evaluate insertions of each non allocated discipline with each professor
+        k0 = k;
+        for (base += nShift; k < hi && k < base + nMacro; k++) {
+            int pair = pairAt(k - base), d = pair % D, pIn = pair / D;
+            if (sol.prof[d] >= 0)
+                continue;
+            long slots = pap.macroSlots(pIn, d, -1, 0);
+            if (slots == 0 || revisits(hash ^ slotsHash(pIn, d, slots)))
+                continue;
+            long deltaCost = pap.evaluateMacroInsertionPAP(pIn, d);
+            if (deltaCost < best.deltaCost && (!isMacroTabu(pIn, d, slots) || aspires(deltaCost)))
+                best.setMacro(deltaCost, -1, d, pIn, slots);
+        }
+        metrics.addMoves(Move.macro, k - k0);
+
+        // Evaluate removals of each allocated discipline
+        k0 = k;
+        for (base += nMacro; k < hi && k < base + (scanMacro ? D : 0); k++) {
+            int d = (int) (k - base), pOut = sol.prof[d];
+            if (pOut < 0 || revisits(hash ^ slotsHash(pOut, d, sol.slots[d])))
+                continue;
+            long deltaCost = pap.evaluateMacroRemovalPAP(pOut, d);
+            if (deltaCost < best.deltaCost && (!isMacroTabu(pOut, d, sol.slots[d]) || aspires(deltaCost)))
+                best.setMacro(deltaCost, pOut, d, -1, 0);
+        }
+        metrics.addMoves(Move.macro, k - k0);
+
+        // Evaluate reallocations of each allocated discipline to each professor
+        k0 = k;
+        for (base += (scanMacro ? D : 0); k < hi && k < base + nMacro; k++) {
+            int pair = pairAt(k - base), d = pair % D, pIn = pair / D, pOut = sol.prof[d];
+            if (pOut < 0 || (pIn == pOut && Long.bitCount(sol.slots[d]) == pap.h[d]))
+                continue;
+            long slots = pap.macroSlots(pIn, d, pOut, sol.slots[d]);
+            if (slots == 0 || revisits(hash ^ slotsHash(pOut, d, sol.slots[d]) ^ slotsHash(pIn, d, slots)))
+                continue;
+            long deltaCost = pap.evaluateMacroReassignmentPAP(d, pOut, pIn);
+            if (deltaCost < best.deltaCost
+                    && (!(isMacroTabu(pOut, d, sol.slots[d]) || isMacroTabu(pIn, d, slots)) || aspires(deltaCost)))
+                best.setMacro(deltaCost, pOut, d, pIn, slots);
+        }
+        metrics.addMoves(Move.macro, k - k0);
+
+    }
+
+    /**
+     * Evaluates the moves in order from a random one, wrapping around, until an
+     * improving move is found or the budget is spent.
+     * 
+     * @param nMoves The number of moves of the neighborhood.
+     * @return The first improving move, or the best one evaluated.
+     */
+    private Move firstImprovement(long nMoves) {
+
+        Move best = new Move();
+        if (nMoves == 0)
+            return best;
+
+        long k = (long) (rng.nextDouble() * nMoves);
+        for (long n = Math.min(budget, nMoves); n > 0 && best.deltaCost >= 0; n--) {
+            if (n % moveGrain == 0 && shouldStop())
+                break;
+            evaluateMoves(k, k + 1, best);
+            if (++k == nMoves)
+                k = 0;
+        }
+
+        return best;
+
+    }
+
+    /**
+     * Evaluates budget moves drawn uniformly at random, with replacement.
+     * 
+     * @param nMoves The number of moves of the neighborhood.
+     * @return The best move of the sample.
+     */
+    private Move sample(long nMoves) {
+
+        Move best = new Move();
+        for (int n = 0; n < budget; n++) {
+            if (n % moveGrain == 0 && n > 0 && shouldStop())
+                break;
+            long k = (long) (rng.nextDouble() * nMoves);
+            evaluateMoves(k, k + 1, best);
+        }
+
+        return best;
+
+    }
+
+    /**
+     * Gives the i-th pair (p, d) whose reassignments and macro insertions and
+     * reallocations are evaluated, as p * D + d. Every pair is evaluated
+     * discipline by discipline unless the candidates strategy selected some.
+     */
+    private int pairAt(long i) {
+        if (scanPairs != null)
+            return scanPairs[(int) i];
+        return (int) (i % pap.P) * pap.D + (int) (i / pap.P);
+    }
+
+    /**
+     * Selects the pairs (p, d) with the highest a_pd, as many as let their moves
+     * and the removals fit in the budget, and at least one, and the candidates of
+     * CL and the elements of the current solution of those pairs.
+     */
+    private void scanTop() {
+
+        PAPSolution sol = (PAPSolution) currentSol;
+        int D = pap.D, T = pap.T;
+
+        // pairs sorted as longs, by -a_pd and then by index
+        if (byScore == null) {
+            long[] keys = new long[pap.P * D];
+            for (int pair = 0; pair < keys.length; pair++)
+                keys[pair] = (long) -pap.a[pair / D][pair % D] << 32 | pair;
+            Arrays.sort(keys);
+            byScore = new int[keys.length];
+            for (int i = 0; i < keys.length; i++)
+                byScore[i] = (int) keys[i];
+            topPairs = new int[keys.length];
+        }
+
+        // the removals and macro removals are always evaluated; each candidate is
+        // inserted and, without the structured moves, exchanged with every element
+        int nSol = solElems.length;
+        long left = (long) budget - nSol - (scanMacro ? D : 0);
+        long perCand = scanStructured ? 1 : nSol + 1;
+        long perPair = (scanStructured ? 1 : 0) + (scanMacro ? 2 : 0);
+
+        // only the times of the pairs with candidates are visited
+        List<int[]> top = new ArrayList<int[]>();
+        List<int[]> shift = new ArrayList<int[]>();
+        nPairs = 0;
+        for (int i = 0; i < byScore.length && (left > 0 || (nPairs == 0 && top.isEmpty())); i++) {
+            int pair = byScore[i], p = pair / D, d = pair % D;
+            if (clCount[pair] == 0 && perPair == 0)
+                continue;
+            if (perPair > 0) {
+                topPairs[nPairs++] = pair;
+                left -= perPair;
+            }
+            if (scanStructured && sol.prof[d] == p)
+                for (long mask = sol.slots[d]; mask != 0; mask &= mask - 1) {
+                    shift.add(elems[id(p, d, Long.numberOfTrailingZeros(mask))]);
+                    left -= T;
+                }
+            if (clCount[pair] == 0)
+                continue;
+            for (int id = pair * T; id < (pair + 1) * T && (left >= perCand || top.isEmpty()); id++)
+                if (clPos[id] >= 0) {
+                    top.add(elems[id]);
+                    left -= perCand;
+                }
+        }
+
+        scanCL = top;
+        scanPairs = topPairs;
+        scanShift = shift.toArray(new int[shift.size()][]);
+
+    }
+
+    /**
+     * Aspiration criterion: a tabu move is allowed if it leads to a solution
+     * better than the incumbent.
+     */
+    private boolean aspires(long deltaCost) {
+        if (currentSol.cost + deltaCost >= incumbentSol.cost)
+            return false;
+        metrics.aspiration();
+        return true;
+    }
+
+    /**
+     * Checks if reassigning discipline d, given at the times in slots, from pOut
+     * to pIn is tabu.
+     */
+    private boolean isReassignTabu(int d, long slots, int pOut, int pIn) {
+        for (long mask = slots; mask != 0; mask &= mask - 1) {
+            int t = Long.numberOfTrailingZeros(mask);
+            if (isTabu(pOut, d, t) || isTabu(pIn, d, t))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if any element [p, d, t] with a time t in slots is tabu.
+     */
+    private boolean isMacroTabu(int p, int d, long slots) {
+        for (long mask = slots; mask != 0; mask &= mask - 1)
+            if (isTabu(p, d, Long.numberOfTrailingZeros(mask)))
+                return true;
+        return false;
+    }
+
+    /**
+     * Inserts the element [p, d, t] into the current solution and makes it tabu.
+     */
+    private void insertElem(int p, int d, int t) {
+        int i = id(p, d, t);
+        pap.applyInsertion(elems[i], currentSol);
+        tabuUntil[i] = currIteration + tenure;
+        hash ^= zobrist[i];
+    }
+
+    /**
+     * Removes the element [p, d, t] from the current solution and makes it tabu.
+     */
+    private void removeElem(int p, int d, int t) {
+        int i = id(p, d, t);
+        pap.applyRemoval(elems[i], currentSol);
+        tabuUntil[i] = currIteration + tenure;
+        hash ^= zobrist[i];
+    }
+
+    /**
+     * Checks if the solution with the given hash was recently visited, counting
+     * it as a cycle hit if so.
+     */
+    private boolean revisits(long hash) {
+        if (visited == null || !visited.contains(hash))
+            return false;
+        metrics.cycleHit();
+        return true;
+    }
+
+    /**
+     * Zobrist hash of the elements [p, d, t] with a time t in slots.
+     */
+    private long slotsHash(int p, int d, long slots) {
+        long h = 0;
+        for (long mask = slots; mask != 0; mask &= mask - 1)
+            h ^= zobrist[id(p, d, Long.numberOfTrailingZeros(mask))];
+        return h;
+    }
+
+    /**
+     * Sets the maximum number of recently visited solutions whose hashes are
+     * kept, to reject the moves back to them, from the next search on. A
+     * capacity of 0 keeps none.
+     * 
+     * @param capacity The number of visited solutions.
+     */
+    public void setVisitedCapacity(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative");
+        this.visitedCapacity = capacity;
+    }
+
+    /**
+     * Sets the strategy to explore the neighborhood and the maximum number of
+     * moves it evaluates per iteration, trading the quality of each move for the
+     * number of iterations per second. The parallel evaluation only applies to
+     * the best and candidates strategies.
+     * 
+     * @param strategy The strategy.
+     * @param budget   The maximum number of moves evaluated per iteration,
+     *                 ignored by the best strategy.
+     */
+    public void setStrategy(Strategy strategy, int budget) {
+        if (budget <= 0)
+            throw new IllegalArgumentException("budget must be positive");
+        this.strategy = strategy;
+        this.budget = budget;
+    }
+
+    /**
+     * Adds the macro moves, which insert, remove or reallocate a whole discipline
+     * with h[d] times at once, to the neighborhood or removes them from it. They
+     * are enabled by default.
+     * 
+     * @param macroMoves true to evaluate the macro moves.
+     */
+    public void setMacroMoves(boolean macroMoves) {
+        this.macroMoves = macroMoves;
+    }
+
+    /**
+     * Chooses between the structured moves Reassignment and Shift, with D * P +
+     * |S| * T moves, and the 2-Exchange of a candidate with an element of the
+     * solution, with |CL| * |S| moves. The structured moves are the default.
+     * 
+     * @param structuredMoves true to evaluate the structured moves, false to
+     *                        evaluate the exchanges.
+     */
+    public void setStructuredMoves(boolean structuredMoves) {
+        this.structuredMoves = structuredMoves;
+    }
+
+    /**
+     * Sets the number of threads used to evaluate the neighborhood. With a single
+     * thread, the neighborhood is evaluated sequentially by the search thread.
+     * 
+     * @param parallelism The number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        if (pool != null)
+            pool.shutdown();
+        pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * A move of the neighborhood and its cost variation. Insertions, removals and
+     * shifts refer to the element [p, d, t], shifts to the new time t2,
+     * reassignments to discipline d moving from professor p to professor p2,
+     * exchanges to [p, d, t] entering and [p2, d2, t2] leaving the solution, and
+     * macro moves to discipline d leaving professor p, if p is not -1, and
+     * entering professor p2 at the times in slots, if p2 is not -1.
+     */
+    private static class Move {
+
+        static final int none = 0, insertion = 1, removal = 2, exchange = 3, reassignment = 4, shift = 5, macro = 6;
+
+        static final String[] names = { null, "insertion", "removal", "exchange", "reassignment", "shift", "macro" };
+
+        long deltaCost = Long.MAX_VALUE;
+        int type = none;
+        int p, d, t, p2, d2, t2;
+        long slots;
+
+        void set(int type, long deltaCost, int p, int d, int t, int p2, int d2, int t2) {
+            this.type = type;
+            this.deltaCost = deltaCost;
+            this.p = p;
+            this.d = d;
+            this.t = t;
+            this.p2 = p2;
+            this.d2 = d2;
+            this.t2 = t2;
+        }
+
+        void setMacro(long deltaCost, int p, int d, int p2, long slots) {
+            set(macro, deltaCost, p, d, 0, p2, d, 0);
+            this.slots = slots;
+        }
+
+    }
+
+    /**
+     * Task that evaluates a range of moves, splitting it in halves while it is
+     * large. On ties, the move of the first half is kept, as in the sequential
+     * evaluation.
+     */
+    @SuppressWarnings("serial")
+    private class MoveTask extends RecursiveTask<Move> {
+
+        final long lo, hi;
+
+        MoveTask(long lo, long hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Move compute() {
+
+            if (hi - lo <= moveGrain)
+                return evaluateMoves(lo, hi);
+
+            long mid = (lo + hi) >>> 1;
+            MoveTask left = new MoveTask(lo, mid);
+            left.fork();
+            Move right = new MoveTask(mid, hi).compute();
+            Move best = left.join();
+
+            return (right.deltaCost < best.deltaCost) ? right : best;
+
+        }
+
+    }
+
+    /**
+     * Checks if an element is tabu at the current iteration.
+     * 
+     * @param elem The element to be checked.
+     * @return true if the element is tabu.
+     */
+    private boolean isTabu(int[] elem) {
+        return tabuUntil[id(elem)] >= currIteration;
+    }
+
+    /**
+     * Checks if the element [p, d, t] is tabu at the current iteration.
+     */
+    private boolean isTabu(int p, int d, int t) {
+        return tabuUntil[id(p, d, t)] >= currIteration;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The solution is first repaired by {@link PAP#repair(List)}, since it may
+     * come from another instance or source, and its elements out of this
+     * instance or infeasible are discarded.
+     */
+    @Override
+    protected void warmStart(Solution<int[]> sol) {
+        super.warmStart(pap.repair(sol));
+    }
+
+    /**
+     * Runs the TS from the solution in a file, in one of the formats read by
+     * {@link PAPSolutionFile}, repaired to be feasible for this instance.
+     * 
+     * @param solutionFile The initial solution file.
+     * @param maxTime      Time limit.
+     * @return The best feasible solution obtained throughout all iterations.
+     * @throws IOException If the solution file cannot be read or is malformed.
+     */
+    public Solution<int[]> solveFrom(String solutionFile, double maxTime) throws IOException {
+        Solution<int[]> initial = new Solution<int[]>();
+        initial.addAll(PAPSolutionFile.read(solutionFile, pap));
+        return solve(initial, maxTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The solutions and the solution of the last CL update are copied as the
+     * professor and the times of each discipline, CL as the indices of its
+     * elements, in order, since the order breaks ties between moves, the tabu
+     * memory as the elements still tabu and the last iteration at which they are,
+     * and the visited solutions as their hashes, from the oldest.
+     */
+    @Override
+    public Checkpoint.State captureState() {
+
+        int P = pap.P, D = pap.D, T = pap.T, iteration = currIteration;
+        PAPSolution current = (PAPSolution) currentSol.copy();
+        PAPSolution incumbent = (PAPSolution) incumbentSol;
+        int[] prof = clProf.clone();
+        long[] slots = clSlots.clone();
+        int[] cl = new int[CL.size()];
+        for (int i = 0; i < cl.length; i++)
+            cl[i] = id(CL.get(i));
+        int[] tabu = tabuUntil.clone();
+        long[] hashes = (visited != null) ? visited.toArray() : new long[0];
+
+        return out -> {
+
+            out.writeInt(P);
+            out.writeInt(D);
+            out.writeInt(T);
+            writeSolution(out, current);
+            writeSolution(out, incumbent);
+            for (int d = 0; d < D; d++) {
+                out.writeInt(prof[d]);
+                out.writeLong(slots[d]);
+            }
+
+            out.writeInt(cl.length);
+            for (int i : cl)
+                out.writeInt(i);
+
+            int nTabu = 0;
+            for (int until : tabu)
+                if (until >= iteration)
+                    nTabu++;
+            out.writeInt(nTabu);
+            for (int i = 0; i < tabu.length; i++) {
+                if (tabu[i] >= iteration) {
+                    out.writeInt(i);
+                    out.writeInt(tabu[i]);
                 }
             }
+
+            out.writeInt(hashes.length);
+            for (long h : hashes)
+                out.writeLong(h);
+
+        };
+
+    }
+
+    private static void writeSolution(DataOutput out, PAPSolution sol) throws IOException {
+        out.writeDouble(sol.cost);
+        for (int d = 0; d < sol.prof.length; d++) {
+            out.writeInt(sol.prof[d]);
+            out.writeLong(sol.slots[d]);
         }
+    }
 
-        // Implement the best non-tabu move
-        TL.poll();
-        if (bestCandOut != null) {
-            currentSol.remove(bestCandOut);
-            TL.add(bestCandOut);
-        } else {
-            TL.add(fake);
+    /**
+     * {@inheritDoc}
+     * 
+     * The search must have the same instance; its parameters are not checked.
+     */
+    @Override
+    public void restoreState(DataInput in) throws IOException {
+
+        if (in.readInt() != pap.P || in.readInt() != pap.D || in.readInt() != pap.T)
+            throw new IOException("the checkpoint is of another instance");
+
+        CL = makeCL();
+        RCL = makeRCL();
+        currentSol = readSolution(in);
+        incumbentSol = readSolution(in);
+        pap.track(currentSol);
+
+        clProf = new int[pap.D];
+        clSlots = new long[pap.D];
+        for (int d = 0; d < pap.D; d++) {
+            clProf[d] = in.readInt();
+            clSlots[d] = in.readLong();
         }
-        TL.poll();
-        if (bestCandIn != null) {
-            currentSol.add(bestCandIn);
-            TL.add(bestCandIn);
-        } else {
-            TL.add(fake);
+
+        int n = readCount(in, elems.length);
+        CL = new ArrayList<int[]>(n);
+        Arrays.fill(clPos, -1);
+        clCount = new int[pap.P * pap.D];
+        for (int k = 0; k < n; k++) {
+            int i = readCount(in, elems.length - 1);
+            clPos[i] = k;
+            CL.add(elems[i]);
+            clCount[i / pap.T]++;
         }
-        ObjFunction.evaluate(currentSol);
+        clList = CL;
+        clSize = CL.size();
+        dirtyP = new boolean[pap.P];
+        dirtyD = new boolean[pap.D];
+        dirtyT = new boolean[pap.T];
 
-        return null;
+        TL = makeTL();
+        n = readCount(in, elems.length);
+        for (int k = 0; k < n; k++)
+            tabuUntil[readCount(in, elems.length - 1)] = in.readInt();
+
+        n = in.readInt();
+        if (visited != null)
+            visited = new VisitedSet(visitedCapacity);
+        for (int k = 0; k < n; k++) {
+            long h = in.readLong();
+            if (visited != null)
+                visited.add(h);
+        }
+
+    }
+
+    /**
+     * Reads a solution written by {@link #writeSolution}.
+     */
+    private PAPSolution readSolution(DataInput in) throws IOException {
+
+        PAPSolution sol = new PAPSolution(pap.D, pap.T);
+        sol.cost = in.readDouble();
+        long times = (pap.T == Long.SIZE) ? ~0L : (1L << pap.T) - 1;
+
+        for (int d = 0; d < pap.D; d++) {
+            int p = in.readInt();
+            long slots = in.readLong();
+            if (p < -1 || p >= pap.P || (p < 0) != (slots == 0) || (slots & ~times) != 0)
+                throw new IOException("malformed solution in checkpoint");
+            for (; slots != 0; slots &= slots - 1)
+                sol.add(p, d, Long.numberOfTrailingZeros(slots));
+        }
+
+        return sol;
 
     }
 
+    /**
+     * Reads a count or an index from 0 to max.
+     */
+    private static int readCount(DataInput in, int max) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > max)
+            throw new IOException("malformed checkpoint");
+        return n;
+    }
+
     /*
      * Run Tabu Search for PAP.
      */
     public static void run(int tenure, int maxIt, String filename, double maxTime, String resultsFileName,
             String instName) throws IOException {
+        run(tenure, maxIt, filename, maxTime, resultsFileName, instName, null);
+    }
+
+    /*
+     * Run Tabu Search for PAP, writing a checkpoint every minute. If the
+     * checkpoint exists, as after a restart, the search is resumed from it. The
+     * checkpoint is deleted once the search ends.
+     */
+    public static void run(int tenure, int maxIt, String filename, double maxTime, String resultsFileName,
+            String instName, String checkpointFile) throws IOException {
 
         long startTime = System.currentTimeMillis();
         TS_PAP ts = new TS_PAP(tenure, maxIt, filename, resultsFileName, instName);
-        Solution<int[]> bestSol = ts.solve(maxTime);
+        Solution<int[]> bestSol;
+        if (checkpointFile == null) {
+            bestSol = ts.solve(maxTime);
+        } else {
+            ts.setCheckpoint(checkpointFile, 60.0);
+            Path checkpoint = Paths.get(checkpointFile);
+            bestSol = Files.exists(checkpoint) ? ts.resume(checkpointFile, maxTime) : ts.solve(maxTime);
+            Files.deleteIfExists(checkpoint);
+        }
+        System.out.println("maxVal = " + bestSol);
+        long endTime = System.currentTimeMillis();
+        long totalTime = endTime - startTime;
+        System.out.println("Time = " + (double) totalTime / (double) 1000 + " seg");
+
+    }
+
+    /*
+     * Run a portfolio of independent Tabu Searches for PAP, one per thread. Search
+     * i uses seed i and a tenure spread between tenure and 2 * tenure.
+     */
+    public static void runPortfolio(int nSearches, int tenure, int maxIt, String filename, double maxTime,
+            double targetCost, String instName) throws IOException {
+
+        long startTime = System.currentTimeMillis();
+        List<AbstractTS<int[]>> searches = new ArrayList<AbstractTS<int[]>>();
+        for (int i = 0; i < nSearches; i++) {
+            TS_PAP ts = new TS_PAP(tenure + i * tenure / nSearches, maxIt, filename, null, instName);
+            ts.setSeed(i);
+            searches.add(ts);
+        }
+        Solution<int[]> bestSol = new PortfolioTS<int[]>(searches).solve(maxTime, targetCost);
         System.out.println("maxVal = " + bestSol);
         long endTime = System.currentTimeMillis();
         long totalTime = endTime - startTime;
@@ -259,19 +1479,24 @@ public class TS_PAP extends AbstractTS<int[]> {
     }
 
     /**
-     * A main method used for testing the TS metaheuristic.
+     * A main method used for testing the TS metaheuristic. If a directory is
+     * given as argument, each instance is checkpointed there, as name.ckpt, and
+     * resumed from it after a restart.
      */
     public static void main(String[] args) throws IOException {
 
+        String checkpointDir = (args.length > 0) ? args[0] : null;
+
         String inst[] = { "instances/P50D50S1.pap", "instances/P50D50S3.pap", "instances/P50D50S5.pap",
                 "instances/P70D70S1.pap", "instances/P70D70S3.pap", "instances/P70D70S5.pap", "instances/P70D100S6.pap",
                 "instances/P70D100S8.pap", "instances/P70D100S10.pap", "instances/P100D150S10.pap",
-                "instances/P100D150S10.pap", "instances/P100D150S15.pap", "instances/P100D150S20.pap" };
+                "instances/P100D150S15.pap", "instances/P100D150S20.pap" };
 
         // test all instances
         for (String file : inst) {
             String name = file.substring(file.indexOf("/") + 1, file.indexOf("."));
-            TS_PAP.run(20, 1000, file, 1800.0, "pap_ts_resultados.csv", name);
+            String checkpointFile = (checkpointDir == null) ? null : Paths.get(checkpointDir, name + ".ckpt").toString();
+            TS_PAP.run(20, 1000, file, 1800.0, "pap_ts_resultados.csv", name, checkpointFile);
         }
 
     }
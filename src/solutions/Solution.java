@@ -6,7 +6,7 @@ import java.util.ArrayList;
 @SuppressWarnings("serial")
 public class Solution<E> extends ArrayList<E> {
 
-	public Double cost = Double.POSITIVE_INFINITY;
+	public double cost = Double.POSITIVE_INFINITY;
 
 	public Solution() {
 		super();
@@ -17,6 +17,15 @@ public class Solution<E> extends ArrayList<E> {
 		cost = sol.cost;
 	}
 
+	/**
+	 * Creates a copy of this solution, keeping its concrete type.
+	 * 
+	 * @return A copy of the solution.
+	 */
+	public Solution<E> copy() {
+		return new Solution<E>(this);
+	}
+
 	@Override
 	public String toString() {
 		return "Solution: cost=[" + cost + "], size=[" + this.size() + "], elements="
@@ -0,0 +1,198 @@
+package problems.pap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import solutions.Solution;
+
+/**
+ * Checks the delta evaluations of the PAP against the objective function after
+ * the moves are applied.
+ */
+public class PAPTest {
+
+    private static final String INSTANCE = "instances/P70D100S8.pap";
+
+    /**
+     * Gives a random element [p, d, t] that can enter the solution, i.e. whose
+     * discipline is not given by another professor.
+     */
+    private static int[] randomElem(PAP pap, PAPSolution sol, Random rng) {
+        int d = rng.nextInt(pap.D);
+        int p = (sol.prof[d] >= 0 && rng.nextInt(4) > 0) ? sol.prof[d] : rng.nextInt(pap.P);
+        if (sol.prof[d] >= 0 && sol.prof[d] != p)
+            p = sol.prof[d];
+        return new int[] { p, d, rng.nextInt(pap.T) };
+    }
+
+    @Test
+    public void deltasMatchObjective() throws IOException {
+
+        PAP pap = new PAP(INSTANCE), check = new PAP(INSTANCE);
+        PAPSolution sol = new PAPSolution(pap.D, pap.T);
+        pap.evaluateAsLong(sol);
+        Random rng = new Random(0);
+
+        for (int i = 0; i < 20000; i++) {
+
+            long before = pap.evaluatePAP(sol);
+            int move = rng.nextInt(3);
+
+            if (move == 0 || sol.isEmpty()) {
+                int[] in = randomElem(pap, sol, rng);
+                long delta = pap.evaluateInsertionCostAsLong(in, sol);
+                pap.applyInsertion(in, sol);
+                assertEquals(pap.evaluatePAP(sol) - before, delta, "insertion");
+            } else if (move == 1) {
+                int[] out = sol.get(rng.nextInt(sol.size()));
+                long delta = pap.evaluateRemovalCostAsLong(out, sol);
+                pap.applyRemoval(out, sol);
+                assertEquals(pap.evaluatePAP(sol) - before, delta, "removal");
+            } else {
+                int[] out = sol.get(rng.nextInt(sol.size()));
+                PAPSolution after = new PAPSolution(sol);
+                after.remove(out);
+                int[] in = randomElem(pap, after, rng);
+                long delta = pap.evaluateExchangeCostAsLong(in, out, sol);
+                pap.applyExchange(in, out, sol);
+                assertEquals(pap.evaluatePAP(sol) - before, delta, "exchange");
+            }
+
+            // the tracked objective is the one of a solution built from scratch
+            assertEquals(check.evaluateAsLong(new PAPSolution(sol)), pap.evaluatePAP(sol));
+
+        }
+
+    }
+
+    @Test
+    public void deltasMatchObjectiveOnLists() throws IOException {
+
+        PAP pap = new PAP(INSTANCE);
+        List<int[]> elems = new ArrayList<>();
+        Random rng = new Random(1);
+
+        // deltas of a list of elements, whose membership comes from the counts
+        PAPSolution sol = new PAPSolution(pap.D, pap.T);
+        for (int i = 0; i < 300; i++) {
+            int[] in = randomElem(pap, sol, rng);
+            if (sol.add(in))
+                elems.add(in);
+        }
+
+        Solution<int[]> list = new Solution<>();
+        list.addAll(elems);
+        pap.evaluateAsLong(list);
+
+        for (int[] elem : elems) {
+            long before = pap.evaluatePAP(list);
+            long delta = pap.evaluateRemovalCostAsLong(elem, list);
+            pap.applyRemoval(elem, list);
+            assertEquals(pap.evaluatePAP(list) - before, delta, "removal");
+        }
+
+    }
+
+    @Test
+    public void macroInsertionBeatsPartialInsertion() throws IOException {
+
+        PAP pap = new PAP_Inverse(INSTANCE);
+        PAPSolution sol = new PAPSolution(pap.D, pap.T);
+        pap.evaluateAsLong(sol);
+        int checked = 0;
+
+        for (int d = 0; d < pap.D; d++) {
+            if (pap.h[d] < 2)
+                continue;
+            for (int p = 0; p < pap.P; p++) {
+                long slots = pap.macroSlots(p, d, -1, 0);
+                if (slots == 0)
+                    continue;
+
+                // a single time leaves d infeasible, all its times do not
+                int[] single = { p, d, Long.numberOfTrailingZeros(slots) };
+                long macro = pap.evaluateMacroInsertionPAP(p, d);
+                assertTrue(macro < pap.evaluateInsertionCostAsLong(single, sol), "d=" + d + " p=" + p);
+
+                long before = pap.evaluatePAP(sol);
+                for (long mask = slots; mask != 0; mask &= mask - 1)
+                    pap.applyInsertion(new int[] { p, d, Long.numberOfTrailingZeros(mask) }, sol);
+                assertEquals(macro, pap.evaluatePAP(sol) - before, "macro insertion");
+                for (long mask = slots; mask != 0; mask &= mask - 1)
+                    pap.applyRemoval(new int[] { p, d, Long.numberOfTrailingZeros(mask) }, sol);
+                checked++;
+            }
+        }
+
+        assertTrue(checked > 0);
+
+    }
+
+    @Test
+    public void feasibilityLeavesTrackedSolution() throws IOException {
+
+        PAP pap = new PAP(INSTANCE);
+        PAPSolution sol = new PAPSolution(pap.D, pap.T);
+        pap.evaluateAsLong(sol);
+        Random rng = new Random(2);
+
+        // whole disciplines at feasible times keep the solution feasible
+        for (int d = 0; d < pap.D; d++) {
+            int p = rng.nextInt(pap.P);
+            for (long mask = pap.macroSlots(p, d, -1, 0); mask != 0; mask &= mask - 1)
+                pap.applyInsertion(new int[] { p, d, Long.numberOfTrailingZeros(mask) }, sol);
+        }
+        long objective = pap.evaluatePAP(sol);
+
+        PAPSolution other = new PAPSolution(sol);
+        Solution<int[]> list = new Solution<>();
+        list.addAll(other);
+        assertTrue(pap.isSolFeasible(other));
+        assertTrue(pap.isSolFeasible(list));
+
+        // a discipline with a missing time is infeasible
+        int[] out = other.get(0);
+        other.remove(out);
+        list.remove(0);
+        if (pap.h[out[1]] > 0) {
+            assertFalse(pap.isSolFeasible(other));
+            assertFalse(pap.isSolFeasible(list));
+        }
+
+        // the tracked solution is still the one the deltas read
+        assertEquals(objective, pap.evaluatePAP(sol));
+        long delta = pap.evaluateRemovalCostAsLong(sol.get(0), sol);
+        pap.applyRemoval(sol.get(0), sol);
+        assertEquals(objective + delta, pap.evaluatePAP(sol));
+
+    }
+
+    @Test
+    public void equalsFollowsHashCode() {
+
+        PAPSolution sol = new PAPSolution(3, 4), other = new PAPSolution(3, 4);
+        sol.add(new int[] { 1, 0, 2 });
+        sol.add(new int[] { 0, 2, 3 });
+        other.add(new int[] { 0, 2, 3 });
+        other.add(new int[] { 1, 0, 2 });
+        assertEquals(sol, other);
+        assertEquals(sol.hashCode(), other.hashCode());
+
+        // a list of the same elements is not a PAPSolution
+        Solution<int[]> list = new Solution<>();
+        list.addAll(sol);
+        assertNotEquals(sol, list);
+        assertNotEquals(list, sol);
+
+    }
+
+}